@@ -0,0 +1,217 @@
+package com.application.canopy.build;
+
+import com.application.canopy.util.AtlasIndex;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Strumento di build (eseguito da Maven in process-classes, con il launcher dei sorgenti
+ * di java): impacchetta le immagini delle piante in atlas, più un indice comune
+ * (AtlasIndex) letto a runtime da ResourceManager.
+ *
+ * - un atlas con tutte le miniature, per liste, calendario ed erbario
+ * - un atlas per pianta con i tre stage di crescita e la pianta finale, alla
+ *   risoluzione dell'immagine grande della home: la crescita è un solo PNG da decodificare
+ *
+ * Non fa parte dell'applicazione: sta fuori da src/main, così il modulo non dipende da
+ * java.desktop. Nome e formato dell'indice arrivano da AtlasIndex (target/classes sul classpath).
+ *
+ * Uso: java -cp target/classes AtlasPacker.java <cartella thumbs> <cartella output>
+ */
+public final class AtlasPacker {
+
+    private static final String THUMBS_ATLAS = "thumbs-atlas.png";
+    private static final String STAGES_ATLAS_PREFIX = "stages-";
+
+    // miniature: basta per le celle da 76px anche su schermi HiDPI
+    private static final int THUMB_HEIGHT = 192;
+    private static final int THUMBS_WIDTH = 1024;
+    // stage: immagine della home alta 280px, x2 per gli schermi HiDPI
+    private static final int STAGE_HEIGHT = 560;
+    private static final int STAGES_WIDTH = 2048;
+    private static final int PADDING = 2;
+
+    private static final Pattern STAGE_FILE = Pattern.compile("(.+)-Stage\\d+\\.png");
+
+    // un atlas da generare: le sue immagini sorgente, ridotte tutte alla stessa altezza
+    private record Atlas(String file, String group, List<Path> sources, int tileHeight, int width) {
+    }
+
+    private AtlasPacker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: java -cp target/classes AtlasPacker.java <cartella thumbs> <cartella output>");
+            System.exit(1);
+        }
+        Path inputDir = Paths.get(args[0]);
+        Path outputDir = Paths.get(args[1]);
+        Path indexFile = outputDir.resolve(AtlasIndex.FILE);
+
+        List<Atlas> atlases = listAtlases(inputDir);
+        if (isUpToDate(atlases, outputDir, indexFile)) {
+            System.out.println("[AtlasPacker] Atlas già aggiornati: " + outputDir);
+            return;
+        }
+
+        Files.createDirectories(outputDir);
+        Properties index = new Properties();
+        for (Atlas atlas : atlases)
+            pack(atlas, outputDir, index);
+        try (OutputStream out = Files.newOutputStream(indexFile)) {
+            index.store(out, "Regioni degli atlas (file atlas,x,y,larghezza,altezza)");
+        }
+
+        System.out.println("[AtlasPacker] " + index.size() + " immagini in " + atlases.size()
+                + " atlas -> " + outputDir);
+    }
+
+    // Miniature delle piante (Lavanda.png, ...) e stage (Lavanda-Stage0.png, ...): le foto
+    // delle varianti dell'erbario (lavanda1.jpg, ...) non stanno in liste e calendario
+    private static List<Atlas> listAtlases(Path inputDir) throws IOException {
+        List<Path> thumbs = new ArrayList<>();
+        Map<String, List<Path>> stagesByPlant = new TreeMap<>();
+        try (Stream<Path> files = Files.list(inputDir)) {
+            for (Path p : files.sorted().toList()) {
+                String name = p.getFileName().toString();
+                if (!name.endsWith(".png") || !Character.isUpperCase(name.charAt(0)))
+                    continue;
+                Matcher stage = STAGE_FILE.matcher(name);
+                if (stage.matches())
+                    stagesByPlant.computeIfAbsent(stage.group(1), k -> new ArrayList<>()).add(p);
+                else
+                    thumbs.add(p);
+            }
+        }
+
+        List<Atlas> atlases = new ArrayList<>();
+        atlases.add(new Atlas(THUMBS_ATLAS, AtlasIndex.THUMBS, thumbs, THUMB_HEIGHT, THUMBS_WIDTH));
+        stagesByPlant.forEach((plant, stages) -> {
+            // lo stage finale (3) è la miniatura stessa: nello stesso atlas degli altri
+            List<Path> sources = new ArrayList<>(stages);
+            Path fin = inputDir.resolve(plant + ".png");
+            if (Files.exists(fin))
+                sources.add(fin);
+            atlases.add(new Atlas(STAGES_ATLAS_PREFIX + plant + ".png", AtlasIndex.STAGES, sources,
+                    STAGE_HEIGHT, STAGES_WIDTH));
+        });
+        return atlases;
+    }
+
+    private static void pack(Atlas atlas, Path outputDir, Properties index) throws IOException {
+        int tileHeight = atlas.tileHeight();
+
+        // 1) riduce ogni immagine all'altezza del riquadro
+        List<BufferedImage> tiles = new ArrayList<>();
+        for (Path p : atlas.sources()) {
+            BufferedImage src = ImageIO.read(p.toFile());
+            if (src == null) {
+                System.err.println("[AtlasPacker] Immagine non leggibile: " + p);
+                tiles.add(null);
+                continue;
+            }
+            int w = Math.max(1, Math.round(src.getWidth() * (tileHeight / (float) src.getHeight())));
+            tiles.add(downscale(src, w, tileHeight));
+        }
+
+        // 2) disposizione a scaffali (righe di altezza fissa)
+        int[][] regions = new int[tiles.size()][];
+        int x = PADDING;
+        int y = PADDING;
+        for (int i = 0; i < tiles.size(); i++) {
+            BufferedImage tile = tiles.get(i);
+            if (tile == null)
+                continue;
+            if (x + tile.getWidth() + PADDING > atlas.width()) {
+                x = PADDING;
+                y += tileHeight + PADDING;
+            }
+            regions[i] = new int[] { x, y, tile.getWidth(), tile.getHeight() };
+            x += tile.getWidth() + PADDING;
+        }
+        int atlasHeight = y + tileHeight + PADDING;
+
+        // 3) disegna l'atlas e registra le regioni nell'indice
+        BufferedImage image = new BufferedImage(atlas.width(), atlasHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        for (int i = 0; i < tiles.size(); i++) {
+            int[] r = regions[i];
+            if (r == null)
+                continue;
+            g.drawImage(tiles.get(i), r[0], r[1], null);
+            index.setProperty(AtlasIndex.key(atlas.group(), atlas.sources().get(i).getFileName().toString()),
+                    atlas.file() + "," + r[0] + "," + r[1] + "," + r[2] + "," + r[3]);
+        }
+        g.dispose();
+
+        ImageIO.write(image, "png", outputDir.resolve(atlas.file()).toFile());
+    }
+
+    private static boolean isUpToDate(List<Atlas> atlases, Path outputDir, Path indexFile) throws IOException {
+        if (!Files.exists(indexFile))
+            return false;
+        long built = Files.getLastModifiedTime(indexFile).toMillis();
+
+        Set<String> keys = new HashSet<>();
+        for (Atlas atlas : atlases) {
+            Path file = outputDir.resolve(atlas.file());
+            if (!Files.exists(file))
+                return false;
+            built = Math.min(built, Files.getLastModifiedTime(file).toMillis());
+            for (Path p : atlas.sources())
+                keys.add(AtlasIndex.key(atlas.group(), p.getFileName().toString()));
+        }
+        for (Atlas atlas : atlases) {
+            for (Path p : atlas.sources()) {
+                if (Files.getLastModifiedTime(p).toMillis() > built)
+                    return false;
+            }
+        }
+
+        // stesse immagini dell'ultima volta (un file aggiunto o tolto cambia gli atlas)
+        Properties index = new Properties();
+        try (InputStream in = Files.newInputStream(indexFile)) {
+            index.load(in);
+        }
+        return keys.equals(index.stringPropertyNames());
+    }
+
+    // Riduzione a passi dimezzati: evita l'aliasing di un unico ridimensionamento bicubico
+    private static BufferedImage downscale(BufferedImage src, int targetW, int targetH) {
+        BufferedImage current = src;
+        int w = src.getWidth();
+        int h = src.getHeight();
+        do {
+            w = Math.max(targetW, w / 2);
+            h = Math.max(targetH, h / 2);
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, w, h, null);
+            g.dispose();
+            current = next;
+        } while (w > targetW || h > targetH);
+        return current;
+    }
+}
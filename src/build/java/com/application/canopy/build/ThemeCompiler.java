@@ -0,0 +1,66 @@
+package com.application.canopy.build;
+
+import javafx.css.Stylesheet;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Strumento di build (eseguito da Maven in process-classes, fuori dal modulo dell'app):
+ * compila i fogli di stile dei temi e dei filtri daltonismo nel formato binario di
+ * JavaFX (.bss), accanto ai .css.
+ * A runtime ThemeManager carica il .bss se c'è, così il cambio tema non deve
+ * fare il parsing del CSS.
+ *
+ * Uso: ThemeCompiler <cartella css> [<cartella css> ...]
+ */
+public final class ThemeCompiler {
+
+    private ThemeCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: ThemeCompiler <cartella css> [<cartella css> ...]");
+            System.exit(1);
+        }
+
+        int compiled = 0;
+        int skipped = 0;
+        for (String dir : args) {
+            for (Path css : listStylesheets(Paths.get(dir))) {
+                String name = css.getFileName().toString();
+                Path bss = css.resolveSibling(name.substring(0, name.length() - ".css".length()) + ".bss");
+
+                // già aggiornato
+                if (Files.exists(bss)
+                        && Files.getLastModifiedTime(bss).compareTo(Files.getLastModifiedTime(css)) >= 0) {
+                    skipped++;
+                    continue;
+                }
+
+                Stylesheet.convertToBinary(css.toFile(), bss.toFile());
+                compiled++;
+            }
+        }
+
+        System.out.println("[ThemeCompiler] " + compiled + " fogli compilati in .bss, " + skipped + " già aggiornati");
+    }
+
+    private static List<Path> listStylesheets(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            System.err.println("[ThemeCompiler] Cartella non trovata: " + dir);
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(p -> p.getFileName().toString().endsWith(".css"))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
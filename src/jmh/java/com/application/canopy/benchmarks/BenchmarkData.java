@@ -0,0 +1,76 @@
+package com.application.canopy.benchmarks;
+
+import com.application.canopy.db.DatabaseManager;
+import com.application.canopy.model.Plant;
+import com.application.canopy.model.PlantActivity;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Dati generati per i benchmark: un DB nuovo in una cartella temporanea
+ * (mai data/canopy.db) e attività casuali ma riproducibili (seed fisso).
+ */
+final class BenchmarkData {
+
+    // ultimo giorno dei dati generati: fisso, così i risultati non dipendono dalla data
+    static final LocalDate LAST_DAY = LocalDate.of(2025, 12, 31);
+
+    private static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    // Punta DatabaseManager a un DB vuoto in una cartella temporanea.
+    // Va chiamato prima di toccare GameState, che si collega al DB appena caricato.
+    static Connection openFreshDatabase() throws IOException, SQLException {
+        Path dir = Files.createTempDirectory("canopy-bench");
+        dir.toFile().deleteOnExit();
+
+        DatabaseManager.close();
+        DatabaseManager.init(dir.resolve("canopy.db"));
+        return DatabaseManager.getConnection();
+    }
+
+    // Attività distribuite sugli ultimi "days" giorni, piante dal catalogo vero
+    static List<PlantActivity> generateActivities(int count, int days) {
+        List<Plant> plants = Plant.samplePlants();
+        Random random = new Random(SEED);
+
+        List<PlantActivity> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDate date = LAST_DAY.minusDays(random.nextInt(days));
+            String plant = plants.get(random.nextInt(plants.size())).getName();
+            int minutes = 5 + random.nextInt(56);
+            list.add(new PlantActivity(date, plant, minutes));
+        }
+        return list;
+    }
+
+    // Inserimento in un'unica transazione (altrimenti SQLite fa un fsync per riga)
+    static void insertActivities(Connection conn, List<PlantActivity> activities) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO plant_activity (date, plant_name, minutes) VALUES (?, ?, ?)")) {
+            for (PlantActivity a : activities) {
+                ps.setString(1, a.getDate().toString());
+                ps.setString(2, a.getPlantName());
+                ps.setInt(3, a.getMinutes());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.application.canopy.benchmarks;
+
+import com.application.canopy.model.PlantActivity;
+import com.application.canopy.model.PlantStat;
+import com.application.canopy.service.ActivityAggregator;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregazione del calendario (ActivityAggregator) su un mese di attività
+ * più i 7 giorni di margine, come in CalendarController.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CalendarAggregationBenchmark {
+
+    // attività nel range mese + margine
+    @Param({ "100", "1000", "10000" })
+    public int activities;
+
+    private List<PlantActivity> monthActivities;
+    private Map<LocalDate, List<PlantStat>> dailyStats;
+    private final YearMonth month = YearMonth.from(BenchmarkData.LAST_DAY);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        monthActivities = BenchmarkData.generateActivities(activities, 31 + 14);
+        dailyStats = ActivityAggregator.byDay(monthActivities);
+    }
+
+    @Benchmark
+    public Map<LocalDate, List<PlantStat>> byDay() {
+        return ActivityAggregator.byDay(monthActivities);
+    }
+
+    @Benchmark
+    public List<PlantStat> forMonth() {
+        return ActivityAggregator.forMonth(dailyStats, month);
+    }
+
+    @Benchmark
+    public List<PlantStat> byPlant() {
+        return ActivityAggregator.byPlant(monthActivities);
+    }
+}
@@ -0,0 +1,83 @@
+package com.application.canopy.benchmarks;
+
+import com.application.canopy.db.DatabaseManager;
+import com.application.canopy.db.GameStateRepository;
+import com.application.canopy.model.AchievementGoal;
+import com.application.canopy.model.AchievementManager;
+import com.application.canopy.model.GameState;
+import com.application.canopy.model.Plant;
+import com.application.canopy.model.UserPlantState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Percorsi del modello eseguiti a ogni pomodoro: aggiornamento e salvataggio dello stato,
+ * valutazione degli achievement, caricamento degli stati delle piante.
+ *
+ * GameState è un singleton collegato al DB: ogni fork parte da un DB temporaneo nuovo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GameStateBenchmark {
+
+    private GameState gameState;
+    private GameStateRepository repository;
+    private Plant plant;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        var conn = BenchmarkData.openFreshDatabase();
+        gameState = GameState.getInstance();
+        repository = new GameStateRepository(conn);
+
+        // un po' di storia, così gli stati delle piante sono sul DB
+        plant = gameState.getAllPlants().get(0);
+        for (Plant p : gameState.getAllPlants()) {
+            gameState.onPomodoroCompleted(p);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DatabaseManager.close();
+    }
+
+    @Benchmark
+    public List<AchievementGoal> evaluateAll() {
+        return AchievementManager.getInstance().evaluateAll(gameState);
+    }
+
+    // include i salvataggi su SQLite, come nell'app.
+    // Ogni invocazione parte dallo stesso stato (vedi FreshProgress): contatori, streak
+    // e righe sul DB non crescono da un'invocazione all'altra
+    @Benchmark
+    public int onPomodoroCompleted(FreshProgress fresh) {
+        gameState.onPomodoroCompleted(plant);
+        return gameState.getTotalPomodoriGlobal();
+    }
+
+    // Azzera i progressi e rigioca lo stesso storico prima di ogni invocazione (fuori dal tempo
+    // misurato). Level.Invocation va bene qui: un pomodoro con i salvataggi dura ben più del
+    // costo della chiamata di setup
+    @State(Scope.Thread)
+    public static class FreshProgress {
+
+        @Setup(Level.Invocation)
+        public void reset() {
+            GameState state = GameState.getInstance();
+            state.resetAllProgress();
+            for (Plant p : state.getAllPlants()) {
+                state.onPomodoroCompleted(p);
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<String, UserPlantState> loadUserPlantStates() {
+        return repository.loadUserPlantStates();
+    }
+}
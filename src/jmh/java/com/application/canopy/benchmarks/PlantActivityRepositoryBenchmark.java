@@ -0,0 +1,49 @@
+package com.application.canopy.benchmarks;
+
+import com.application.canopy.db.DatabaseManager;
+import com.application.canopy.db.PlantActivityRepository;
+import com.application.canopy.model.PlantActivity;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query del calendario (un mese + 7 giorni di margine) su tabelle di dimensioni diverse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlantActivityRepositoryBenchmark {
+
+    // righe totali in plant_activity, distribuite su due anni
+    @Param({ "1000", "10000", "100000" })
+    public int rows;
+
+    private PlantActivityRepository repository;
+    private LocalDate from;
+    private LocalDate to;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        var conn = BenchmarkData.openFreshDatabase();
+        BenchmarkData.insertActivities(conn, BenchmarkData.generateActivities(rows, 730));
+        repository = new PlantActivityRepository(conn);
+
+        LocalDate first = BenchmarkData.LAST_DAY.withDayOfMonth(1);
+        from = first.minusDays(7);
+        to = BenchmarkData.LAST_DAY.plusDays(7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DatabaseManager.close();
+    }
+
+    @Benchmark
+    public List<PlantActivity> getActivitiesBetween() throws SQLException {
+        return repository.getActivitiesBetween(from, to);
+    }
+}
@@ -3,81 +3,137 @@ package com.application.canopy;
 import com.application.canopy.model.FontManager;
 import com.application.canopy.model.ThemeManager;
 import com.application.canopy.db.DatabaseManager;
+import com.application.canopy.service.ServiceLocator;
+import com.application.canopy.util.FlightRecording;
+import com.application.canopy.util.FrameMonitor;
+import com.application.canopy.util.Metrics;
+import com.application.canopy.util.RenderPipeline;
+import com.application.canopy.util.ResourceManager;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.image.Image;
+import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
-import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 public class Main extends Application {
 
+    private static final String[] STYLES = {
+            "/css/base.css",
+            "/css/achievements.css",
+            "/css/calendar.css",
+            "/css/herbarium.css"
+    };
+
     @Override
-    public void start(Stage stage) throws IOException {
+    public void start(Stage stage) throws Exception {
+        StartupPipeline startup = new StartupPipeline();
 
-        /* Inizializza SQLite */
-        try {
+        /* Stage indipendenti: partono subito in parallelo */
+        CompletableFuture<Void> db = startup.runAsync("sqlite", () -> {
             DatabaseManager.init();
             System.out.println("SQLite inizializzato!");
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new RuntimeException("Errore durante inizializzazione SQLite", e);
-        }
-
-        // Font e icona
-        FontManager.initFonts();
-
-        stage.getIcons().add(
-                new javafx.scene.image.Image(
-                        Objects.requireNonNull(
-                                getClass().getResourceAsStream(
-                                        "/com/application/canopy/view/components/images/app/canopy.png"))));
-
-        // Caricamento FXML
-        FXMLLoader loader = new FXMLLoader(
-                getClass().getResource("/com/application/canopy/view/app.fxml"));
-        Parent root = loader.load();
-
-        Scene scene = new Scene(root, 1280, 720);
+        });
+        // attività in memoria per le statistiche: serve il DB, ma il contenuto non la aspetta.
+        // Se fallisce lo stage finisce nella traccia come fallito e le statistiche leggono dal DB
+        CompletableFuture<Void> activityStore = db.thenCompose(v -> startup.runAsync("activity-store", () -> {
+            if (ServiceLocator.getInstance().loadActivityStore() == null)
+                throw new IllegalStateException("attività non caricate in memoria");
+        }));
+        activityStore.whenComplete((v, error) -> {
+            if (error != null)
+                System.err.println("[Main] Store delle attività non disponibile, statistiche dal DB: "
+                        + (error.getCause() != null ? error.getCause() : error));
+        });
+        CompletableFuture<Void> fonts = startup.runAsync("fonts", FontManager::initFonts);
+        CompletableFuture<Image> icon = startup.supplyAsync("icon", () -> new Image(
+                Objects.requireNonNull(
+                        getClass().getResourceAsStream(
+                                "/com/application/canopy/view/components/images/app/canopy.png"))));
 
         // Caricamento CSS
-        String[] styles = {
-                "/css/base.css",
-                "/css/achievements.css",
-                "/css/calendar.css",
-                "/css/herbarium.css"
-        };
-
-        for (String style : styles) {
-            URL url = getClass().getResource(style);
-            if (url == null) {
-                throw new IllegalStateException("File CSS non trovato: " + style);
+        List<String> stylesheets = startup.time("css", () -> {
+            List<String> urls = new ArrayList<>();
+            for (String style : STYLES) {
+                URL url = getClass().getResource(style);
+                if (url == null) {
+                    throw new IllegalStateException("File CSS non trovato: " + style);
+                }
+                urls.add(url.toExternalForm());
             }
-            scene.getStylesheets().add(url.toExternalForm());
-        }
+            return urls;
+        });
 
-        ThemeManager.applyTheme(root);
-        FontManager.applyCurrentFont(scene);
+        // Finestra subito visibile con un segnaposto già nei colori del tema
+        StackPane placeholder = new StackPane(new ProgressIndicator());
+        ThemeManager.applyTheme(placeholder);
+        Scene scene = new Scene(placeholder, 1280, 720);
+        scene.getStylesheets().addAll(stylesheets);
 
         stage.setScene(scene);
         stage.setTitle("Canopy");
         stage.show();
+        startup.mark("window");
+
+        // tempi dei pulse e blocchi del thread FX (overlay con F12)
+        FrameMonitor.install(scene);
+        // metriche su JMX e in data/metrics.prom
+        Metrics.startExport();
+        // registrazione JFR continua, se attivata nelle impostazioni
+        FlightRecording.startIfEnabled();
+
+        icon.thenAcceptAsync(img -> stage.getIcons().add(img), Platform::runLater);
+
+        // Il contenuto vero richiede DB (controller) e font (CSS)
+        CompletableFuture.allOf(db, fonts).whenCompleteAsync((ignored, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+                System.err.println("[Main] Errore durante l'avvio, chiusura applicazione");
+                Platform.exit();
+                return;
+            }
+            try {
+                // Caricamento FXML
+                Parent root = startup.time("app.fxml", () -> new FXMLLoader(
+                        getClass().getResource("/com/application/canopy/view/app.fxml")).load());
+
+                ThemeManager.applyTheme(root);
+                scene.setRoot(root);
+                FontManager.applyCurrentFont(scene);
+                startup.mark("content");
+                startup.finishOnNextFrame(RenderPipeline::markFirstFrame);
+            } catch (Exception e) {
+                e.printStackTrace();
+                Platform.exit();
+            }
+        }, Platform::runLater);
     }
 
     @Override
     public void stop() throws Exception {
         super.stop();
+        RenderPipeline.markCleanExit();
+        Metrics.stopExport();
+        FlightRecording.stop();
+        System.out.println(ResourceManager.describeCache());
         DatabaseManager.close();
     }
 
     public static void main(String[] args) {
+        StartupPipeline.markLaunch();
 
-        System.setProperty("prism.order", "sw"); // forza renderer software
-        System.setProperty("prism.text", "t2k"); // renderer testi alternativo
+        // hardware se disponibile, software come ripiego (ricordato tra un avvio e l'altro)
+        RenderPipeline.configure();
 
         launch(args);
     }
@@ -1,12 +1,29 @@
 package com.application.canopy;
 
+import com.application.canopy.util.FlightRecording;
+import com.application.canopy.util.Metrics;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
+import javafx.scene.Parent;
 import javafx.scene.layout.StackPane;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public final class Navigator {
 
@@ -21,41 +38,231 @@ public final class Navigator {
             "calendar", "/com/application/canopy/view/calendar.fxml",
             "settings", "/com/application/canopy/view/settings.fxml");
 
-    private static final Map<String, Node> PAGES = new HashMap<>();
+    // pagine da precaricare dopo il primo frame, prima le più pesanti
+    private static final List<String> PRELOAD_ORDER = List.of("calendar", "herbarium", "achievements", "settings");
+
+    // pagine mai scartate dalla cache (la home tiene il timer in corso)
+    private static final Set<String> PINNED = Set.of("home");
+
+    // budget della cache in numero di nodi (stima della memoria occupata dalle pagine)
+    private static final int NODE_BUDGET = Integer.getInteger("canopy.pageNodeBudget", 8000);
+
+    // -Dcanopy.preload=false: niente precaricamento, ogni pagina si carica alla prima visita
+    // (i test di performance della UI misurano così il caricamento sul thread FX)
+    private static final boolean PRELOAD = Boolean.parseBoolean(System.getProperty("canopy.preload", "true"));
+
+    // pagine in ordine di accesso (la prima è la meno usata di recente)
+    private static final Map<String, Node> PAGES = new LinkedHashMap<>(8, 0.75f, true);
+
+    // nodi di ogni pagina in cache, contati una volta sola quando entra, e il loro totale
+    private static final Map<String, Integer> PAGE_NODES = new HashMap<>();
+    private static int cachedNodes;
+
+    // tempi di caricamento per rotta, in ms
+    private static final Map<String, Long> LOAD_TIMES = new ConcurrentHashMap<>();
+
+    // rotte in precaricamento
+    private static final Set<String> PRELOADING = new HashSet<>();
+
+    private static ExecutorService preloader;
 
     private static StackPane contentRoot;
+    private static String currentRoute;
 
     public static void init(StackPane container) {
         contentRoot = container;
-        // Nessun preloading massivo qui
     }
 
     public static void show(String route) {
         if (contentRoot == null)
             return;
 
+        FlightRecording.Navigation event = new FlightRecording.Navigation();
+        event.route = route;
+        event.begin();
+
         // 1. Cerca in cache
         Node page = PAGES.get(route);
+        event.cached = page != null;
 
-        // 2. Se manca, carica ORA (Lazy Loading)
+        // 2. Se manca, carica ORA sul thread FX
         if (page == null) {
-            String fxmlPath = ROUTES.get(route);
-            if (fxmlPath == null) {
-                System.err.println("[Navigator] Rotta non trovata: " + route);
+            page = loadPage(route);
+            if (page == null)
                 return;
+            cachePage(route, page);
+        }
+
+        currentRoute = route;
+        contentRoot.getChildren().setAll(page);
+
+        evictOverBudget();
+        event.commit();
+    }
+
+    public static String getCurrentRoute() {
+        return currentRoute;
+    }
+
+    public static Map<String, Long> getLoadTimes() {
+        return Collections.unmodifiableMap(LOAD_TIMES);
+    }
+
+    // tutte le rotte registrate (usato dai test di performance della UI)
+    public static Set<String> getRoutes() {
+        return ROUTES.keySet();
+    }
+
+    // ----------------- PRECARICAMENTO -----------------
+
+    // Aspetta il primo frame con la finestra visibile, poi precarica le altre pagine
+    public static void preloadAfterFirstPaint() {
+        if (!PRELOAD)
+            return;
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (contentRoot == null || contentRoot.getScene() == null
+                        || contentRoot.getScene().getWindow() == null
+                        || !contentRoot.getScene().getWindow().isShowing())
+                    return;
+                stop();
+                preloadNext(PRELOAD_ORDER.iterator());
             }
-            try {
-                System.out.println("[Navigator] Caricamento di: " + route);
-                FXMLLoader loader = new FXMLLoader(Navigator.class.getResource(fxmlPath));
-                page = loader.load();
-                PAGES.put(route, page);
-            } catch (IOException e) {
-                e.printStackTrace();
+        }.start();
+    }
+
+    // Una pagina alla volta: la lettura dell'FXML avviene in background, la costruzione
+    // della pagina sul thread FX. I controller (initialize) leggono il DB e lo stato di
+    // gioco, che non sono thread-safe: non possono girare su un altro thread.
+    // La pagina successiva parte solo quando quella prima è in cache, così ogni
+    // frame costruisce al massimo una pagina
+    private static void preloadNext(Iterator<String> routes) {
+        while (routes.hasNext()) {
+            String route = routes.next();
+            if (preload(route, () -> preloadNext(routes)))
                 return;
-            }
         }
+    }
 
-        contentRoot.getChildren().setAll(page);
+    // false se la rotta non va precaricata (già in cache o in caricamento)
+    private static boolean preload(String route, Runnable then) {
+        String fxmlPath = ROUTES.get(route);
+        if (fxmlPath == null || PAGES.containsKey(route) || !PRELOADING.add(route))
+            return false;
+
+        if (preloader == null) {
+            preloader = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "canopy-page-preload");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        preloader.execute(() -> {
+            byte[] fxml = readFxml(fxmlPath);
+            Platform.runLater(() -> {
+                PRELOADING.remove(route);
+                if (fxml != null && !PAGES.containsKey(route)) {
+                    Node page = loadPage(route, fxml);
+                    if (page != null) {
+                        cachePage(route, page);
+                        evictOverBudget();
+                    }
+                }
+                then.run();
+            });
+        });
+        return true;
+    }
+
+    private static byte[] readFxml(String fxmlPath) {
+        try (InputStream in = Navigator.class.getResourceAsStream(fxmlPath)) {
+            return in != null ? in.readAllBytes() : null;
+        } catch (IOException e) {
+            System.err.println("[Navigator] Lettura di " + fxmlPath + " non riuscita: " + e);
+            return null;
+        }
+    }
+
+    // ----------------- CARICAMENTO / CACHE -----------------
+
+    private static Node loadPage(String route) {
+        return loadPage(route, null);
+    }
+
+    // fxml: contenuto già letto (precaricamento), null per leggerlo dalle risorse
+    private static Node loadPage(String route, byte[] fxml) {
+        String fxmlPath = ROUTES.get(route);
+        if (fxmlPath == null) {
+            System.err.println("[Navigator] Rotta non trovata: " + route);
+            return null;
+        }
+
+        long start = System.nanoTime();
+        try {
+            FXMLLoader loader = new FXMLLoader(Navigator.class.getResource(fxmlPath));
+            Node page = fxml != null ? loader.load(new ByteArrayInputStream(fxml)) : loader.load();
+
+            long nanos = System.nanoTime() - start;
+            Metrics.histogram("fxml.page." + route).recordNanos(nanos);
+            long ms = nanos / 1_000_000;
+            LOAD_TIMES.put(route, ms);
+            return page;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Toglie una pagina dalla cache: la prossima show la ricarica (usato dai test di
+    // performance della UI). La pagina visibile non si tocca
+    public static boolean evict(String route) {
+        if (route.equals(currentRoute))
+            return false;
+        return uncachePage(route);
+    }
+
+    private static void cachePage(String route, Node page) {
+        int nodes = countNodes(page);
+        PAGES.put(route, page);
+        Integer old = PAGE_NODES.put(route, nodes);
+        cachedNodes += nodes - (old != null ? old : 0);
+    }
+
+    private static boolean uncachePage(String route) {
+        Integer nodes = PAGE_NODES.remove(route);
+        if (nodes != null)
+            cachedNodes -= nodes;
+        return PAGES.remove(route) != null;
+    }
+
+    // Scarta le pagine usate meno di recente finché i nodi in cache rientrano nel budget.
+    // Le dimensioni sono quelle contate all'ingresso in cache: qui nessuna visita dei nodi
+    private static void evictOverBudget() {
+        if (cachedNodes <= NODE_BUDGET)
+            return;
+
+        List<String> lru = new ArrayList<>(PAGES.keySet());
+        for (String route : lru) {
+            if (cachedNodes <= NODE_BUDGET)
+                break;
+            if (PINNED.contains(route) || route.equals(currentRoute))
+                continue;
+            int nodes = PAGE_NODES.getOrDefault(route, 0);
+            uncachePage(route);
+            System.out.println("[Navigator] " + route + " rimossa dalla cache (" + nodes + " nodi)");
+        }
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        if (node instanceof Parent parent) {
+            for (Node child : parent.getChildrenUnmodifiable()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
     }
 
     // ----------------- FOCUS / FULLSCREEN API -----------------
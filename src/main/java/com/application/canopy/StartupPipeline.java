@@ -0,0 +1,163 @@
+package com.application.canopy;
+
+import javafx.animation.AnimationTimer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Orchestratore dell'avvio: gli stage indipendenti (DB, font, icona...) partono
+ * in parallelo come CompletableFuture, ognuno viene cronometrato rispetto al
+ * lancio della JVM (main).
+ *
+ * A fine avvio la traccia viene stampata e aggiunta in coda a data/startup-trace.log,
+ * così le regressioni del tempo al primo frame restano visibili tra un avvio e l'altro.
+ * La traccia si chiude quando anche gli stage in background sono finiti (alcuni, come
+ * lo store delle attività, non bloccano il primo frame); uno stage fallito compare con l'errore.
+ */
+public final class StartupPipeline {
+
+    private static final Path TRACE_FILE = Paths.get(System.getProperty("user.dir"), "data", "startup-trace.log");
+
+    // istante del lancio, impostato da Main.main
+    private static long launchNanos = System.nanoTime();
+
+    // error: null se lo stage è andato a buon fine
+    private record Step(String name, String thread, long startMs, long durationMs, String error) {
+    }
+
+    private final List<Step> steps = new ArrayList<>();
+    private final List<String> marks = new ArrayList<>();
+    // stage in background: la traccia si scrive quando sono finiti tutti
+    private final List<CompletableFuture<?>> background = new ArrayList<>();
+
+    public static void markLaunch() {
+        launchNanos = System.nanoTime();
+    }
+
+    // Stage eseguito in background, in parallelo agli altri
+    public <T> CompletableFuture<T> supplyAsync(String name, Callable<T> work) {
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+            try {
+                return time(name, work);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+        synchronized (steps) {
+            background.add(future);
+        }
+        return future;
+    }
+
+    public CompletableFuture<Void> runAsync(String name, ThrowingRunnable work) {
+        return supplyAsync(name, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // Stage eseguito sul thread corrente (tipicamente il thread FX)
+    public <T> T time(String name, Callable<T> work) throws Exception {
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            return work.call();
+        } catch (Exception e) {
+            error = e.toString();
+            throw e;
+        } finally {
+            long end = System.nanoTime();
+            synchronized (steps) {
+                steps.add(new Step(name, Thread.currentThread().getName(),
+                        toMs(start - launchNanos), toMs(end - start), error));
+            }
+        }
+    }
+
+    // Segna un istante (es. finestra mostrata, primo frame)
+    public void mark(String name) {
+        long ms = toMs(System.nanoTime() - launchNanos);
+        synchronized (steps) {
+            marks.add(name + "=" + ms + "ms");
+        }
+    }
+
+    // Chiude la traccia al primo pulse successivo (il contenuto è stato disegnato)
+    public void finishOnNextFrame(Runnable onFirstFrame) {
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                mark("first-frame");
+                onFirstFrame.run();
+                finish();
+            }
+        }.start();
+    }
+
+    // La traccia aspetta gli stage in background ancora in corso (anche quelli falliti),
+    // senza bloccare il thread FX; la scrittura su disco non deve rallentare il primo frame
+    private void finish() {
+        CompletableFuture<?>[] pending;
+        synchronized (steps) {
+            pending = background.toArray(new CompletableFuture<?>[0]);
+        }
+        CompletableFuture.allOf(pending).handleAsync((ignored, error) -> {
+            writeTrace();
+            return null;
+        });
+    }
+
+    private void writeTrace() {
+        String trace = describe();
+        System.out.println("[Startup] " + trace);
+
+        CompletableFuture.runAsync(() -> {
+            try {
+                Files.createDirectories(TRACE_FILE.getParent());
+                Files.writeString(TRACE_FILE,
+                        LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + " " + trace
+                                + System.lineSeparator(),
+                        StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                System.err.println("[Startup] Impossibile scrivere la traccia: " + e.getMessage());
+            }
+        });
+    }
+
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (steps) {
+            sb.append(String.join(" ", marks));
+            for (Step s : steps) {
+                sb.append(" | ").append(s.name())
+                        .append(' ').append(s.startMs()).append('+').append(s.durationMs()).append("ms")
+                        .append(" [").append(s.thread()).append(']');
+                if (s.error() != null)
+                    sb.append(" FALLITO: ").append(s.error());
+            }
+        }
+        return sb.toString();
+    }
+
+    private static long toMs(long nanos) {
+        return nanos / 1_000_000;
+    }
+
+    @FunctionalInterface
+    public interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
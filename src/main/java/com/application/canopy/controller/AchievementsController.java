@@ -1,6 +1,7 @@
 package com.application.canopy.controller;
 
 import com.application.canopy.model.AchievementGoal;
+import com.application.canopy.model.AchievementId;
 import com.application.canopy.model.AchievementManager;
 import com.application.canopy.model.GameState;
 import com.application.canopy.view.components.RingProgressIndicator;
@@ -16,7 +17,9 @@ import javafx.scene.text.Text;
 
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.ResourceBundle;
 
@@ -55,7 +58,10 @@ public class AchievementsController implements Initializable {
     private final GameState gameState = GameState.getInstance();
 
     private RingProgressIndicator overallRing;
-    private HBox selectedCard;
+
+    // una card per obiettivo, riusata tra un refresh e l'altro
+    private final Map<AchievementId, GoalCard> cards = new EnumMap<>(AchievementId.class);
+    private AchievementId selectedId;
 
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
@@ -85,9 +91,17 @@ public class AchievementsController implements Initializable {
         goals.clear();
         goals.addAll(achievementManager.evaluateAll(gameState));
 
-        buildGoalCards(); //ricostruisce le card della lista
+        syncGoalCards(); //aggiorna solo le card degli obiettivi cambiati
         updateOverall(); //aggiorna il anello grande
-        resetDetailsPanel(); //azzera il pannello dettagli finché non clicchi una card
+
+        // se c'era una card selezionata resta selezionata, con i dati aggiornati
+        GoalCard selected = selectedId != null ? cards.get(selectedId) : null;
+        if (selected != null) {
+            showDetails(selected.goal);
+        } else {
+            selectedId = null;
+            resetDetailsPanel(); //azzera il pannello dettagli finché non clicchi una card
+        }
     }
 
     //mette tutti i detagli per default, senza selezionare niente
@@ -118,56 +132,39 @@ public class AchievementsController implements Initializable {
 
     // Lista obiettivi
 
-    private void buildGoalCards() { //Svuota il FlowPane e aggiunge una card per ogni obiettivo
-        goalsFlow.getChildren().clear();
-        selectedCard = null;
-
+    // Allinea le card alla lista degli obiettivi: crea quelle nuove, aggiorna solo
+    // quelle il cui progresso è cambiato e rimuove quelle che non esistono più
+    private void syncGoalCards() {
+        List<GoalCard> ordered = new ArrayList<>(goals.size());
         for (AchievementGoal g : goals) {
-            goalsFlow.getChildren().add(createGoalCard(g));
+            GoalCard card = cards.get(g.getId());
+            if (card == null) {
+                card = new GoalCard(g);
+                cards.put(g.getId(), card);
+            } else {
+                card.update(g);
+            }
+            ordered.add(card);
         }
-    }
 
-    private HBox createGoalCard(AchievementGoal goal) {//crea una cart obbitivo in una hbox composta dal cerchio + vbox con le info
-        HBox card = new HBox(12);
-        card.setPadding(new Insets(10));
-        card.setAlignment(Pos.CENTER_LEFT);
-        card.getStyleClass().add("goal-card");
-
-        card.prefWidthProperty().bind(
-                //resize responsivo con binding -> binding javafx, le dimesioni si aggiornano da sole quando si cambia la dimezione
-                Bindings.when(goalsFlow.widthProperty().greaterThan(900))//se la lista è larga > 900 →
-                        .then(goalsFlow.widthProperty().divide(2).subtract(24))// due colonne
-                        .otherwise(goalsFlow.widthProperty().subtract(16)));
-        //crea il mini cerchio per ogni obbietivo
-        RingProgressIndicator ring = new RingProgressIndicator(70, 8);
-        ring.setProgress(goal.getCompletionRatio());
-        ring.getLabel().getStyleClass().addAll("ring-label", "ring-label-small");
-        //crea la parte con i detagli del obbietivo
-        VBox textBox = new VBox(4);
-        Label title = new Label(goal.getName());
-        title.getStyleClass().add("goal-title");
-
-        Text desc = new Text(goal.getShortDescription());
-        desc.setWrappingWidth(220); //limita la larghezza del testo della descrizione, se è lunga va a capo
-        desc.getStyleClass().add("goal-description");
-
-        textBox.getChildren().addAll(title, desc);
-        card.getChildren().addAll(ring, textBox);
-
-        card.setOnMouseClicked(e -> {
-            selectCard(card);
-            showDetails(goal);
-        });
+        // obiettivi spariti
+        if (cards.size() != ordered.size()) {
+            cards.values().removeIf(c -> !ordered.contains(c));
+        }
 
-        return card;
+        // la lista dei figli si tocca solo se l'ordine o il numero delle card è cambiato
+        if (!goalsFlow.getChildren().equals(ordered)) {
+            goalsFlow.getChildren().setAll(ordered);
+        }
     }
 
-    private void selectCard(HBox card) {
-        if (selectedCard != null) {
-            selectedCard.getStyleClass().remove("goal-card-selected");
+    private void selectCard(GoalCard card) {
+        if (selectedId != null && cards.get(selectedId) != null) {
+            cards.get(selectedId).getStyleClass().remove("goal-card-selected");
         }
-        selectedCard = card;
-        selectedCard.getStyleClass().add("goal-card-selected");
+        selectedId = card.goal.getId();
+        if (!card.getStyleClass().contains("goal-card-selected"))
+            card.getStyleClass().add("goal-card-selected");
     }
 
     // Mostra obiettivo
@@ -179,4 +176,65 @@ public class AchievementsController implements Initializable {
         detailProgressLabel.setText(goal.getCurrent() + "/" + goal.getTotal());
         detailStatus.setText("Stato: " + (goal.isCompleted() ? "Completato" : "In corso"));
     }
+
+    // card obiettivo in una hbox composta dal cerchio + vbox con le info
+    private final class GoalCard extends HBox {
+        private final RingProgressIndicator ring = new RingProgressIndicator(70, 8);
+        private final Label title = new Label();
+        private final Text desc = new Text();
+        private AchievementGoal goal;
+
+        GoalCard(AchievementGoal goal) {
+            super(12);
+            setPadding(new Insets(10));
+            setAlignment(Pos.CENTER_LEFT);
+            getStyleClass().add("goal-card");
+
+            prefWidthProperty().bind(
+                    //resize responsivo con binding -> binding javafx, le dimesioni si aggiornano da sole quando si cambia la dimezione
+                    Bindings.when(goalsFlow.widthProperty().greaterThan(900))//se la lista è larga > 900 →
+                            .then(goalsFlow.widthProperty().divide(2).subtract(24))// due colonne
+                            .otherwise(goalsFlow.widthProperty().subtract(16)));
+
+            ring.getLabel().getStyleClass().addAll("ring-label", "ring-label-small");
+
+            //crea la parte con i detagli del obbietivo
+            VBox textBox = new VBox(4);
+            title.getStyleClass().add("goal-title");
+
+            desc.setWrappingWidth(220); //limita la larghezza del testo della descrizione, se è lunga va a capo
+            desc.getStyleClass().add("goal-description");
+
+            textBox.getChildren().addAll(title, desc);
+            getChildren().addAll(ring, textBox);
+
+            setOnMouseClicked(e -> {
+                selectCard(this);
+                showDetails(this.goal);
+            });
+
+            apply(goal, null);
+        }
+
+        void update(AchievementGoal next) {
+            AchievementGoal prev = goal;
+            if (prev.getCurrent() == next.getCurrent() && prev.getTotal() == next.getTotal()
+                    && prev.getName().equals(next.getName())
+                    && prev.getShortDescription().equals(next.getShortDescription())) {
+                goal = next; // stessi valori, nessun nodo toccato
+                return;
+            }
+            apply(next, prev);
+        }
+
+        private void apply(AchievementGoal next, AchievementGoal prev) {
+            goal = next;
+            if (prev == null || prev.getCompletionRatio() != next.getCompletionRatio())
+                ring.setProgress(next.getCompletionRatio());
+            if (prev == null || !prev.getName().equals(next.getName()))
+                title.setText(next.getName());
+            if (prev == null || !prev.getShortDescription().equals(next.getShortDescription()))
+                desc.setText(next.getShortDescription());
+        }
+    }
 }
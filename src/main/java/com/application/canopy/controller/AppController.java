@@ -29,6 +29,9 @@ public class AppController {
         Navigator.show("home");
         navController.setActive("home");
 
+        // Dopo il primo frame prepara in background le altre pagine
+        Navigator.preloadAfterFirstPaint();
+
         // Listener per Focus / Fullscreen Mode
         Navigator.setOnFullScreenToggle(active -> {
             if (navController != null && navController.getView() != null) {
@@ -1,9 +1,16 @@
 package com.application.canopy.controller;
 
 import com.application.canopy.db.PlantActivityRepository;
-import com.application.canopy.model.PlantActivity;
+import com.application.canopy.model.ActivityStats;
+import com.application.canopy.model.PlantStat;
+import com.application.canopy.service.ActivityAggregator;
+import com.application.canopy.service.ActivityStatistics;
+import com.application.canopy.service.MonthStatsCache;
+import com.application.canopy.service.YearActivityCache;
+import com.application.canopy.view.components.YearHeatmap;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.css.PseudoClass;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
@@ -15,7 +22,6 @@ import java.sql.SQLException;
 import java.time.*;
 import java.time.format.TextStyle;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class CalendarController {
 
@@ -23,51 +29,98 @@ public class CalendarController {
     private BorderPane root;
 
     @FXML
-    private ToggleButton monthBtn, weekBtn;
+    private ToggleButton monthBtn, weekBtn, yearBtn;
     @FXML
     private Button prevBtn, nextBtn;
     @FXML
-    private Label periodLabel, rightTitle, summaryLabel;
+    private Label periodLabel, rightTitle, summaryLabel, insightLabel;
     @FXML
     private GridPane calendarGrid, weekdayHeader;
     @FXML
     private ListView<PlantStat> listMonth;
+    @FXML
+    private VBox calendarBox;
 
     private YearMonth currentMonth = YearMonth.now();
     private LocalDate currentWeekStart = LocalDate.now().with(DayOfWeek.MONDAY);
+    private int currentYear = LocalDate.now().getYear();
     private final Locale locale = Locale.ITALY;
 
+    private static final double DAY_ICON_SIZE = 76;
+
+    // 6 settimane x 7 giorni: le celle vengono create una volta e riassegnate a ogni refresh
+    private static final int GRID_ROWS = 6;
+    private final DayCell[] dayCells = new DayCell[GRID_ROWS * 7];
+
+    // righe attualmente impostate sulla griglia (6 mese, 1 settimana)
+    private int gridRows = -1;
+
     // Repository da cui prendo i dati delle piante
     private PlantActivityRepository repository;
 
-    // Giorno -> Lista minuti per pianta del giorno
-    private final Map<LocalDate, List<PlantStat>> dailyStats = new HashMap<>();
+    // Vista "Anno": heatmap su canvas, dati in cache per anno (condivisa, vedi ServiceLocator)
+    private final YearHeatmap yearHeatmap = new YearHeatmap();
+    private YearActivityCache yearCache;
+
+    // Statistiche del periodo mostrato (totali per pianta, medie, giorno/ora più attivi)
+    private ActivityStatistics statistics;
+
+    // Giorno -> Lista minuti per pianta del giorno, in cache per mese (condivisa, vedi ServiceLocator):
+    // resta tra una navigazione e l'altra e si aggiorna da sola quando arrivano minuti nuovi
+    private MonthStatsCache monthStats;
 
     @FXML
     private void initialize() {
         // Inizializzazione repository da PlantActivityRepository che prende dal DB
         repository = com.application.canopy.service.ServiceLocator.getInstance().getPlantActivityRepository();
+        yearCache = com.application.canopy.service.ServiceLocator.getInstance().getYearActivityCache();
+        monthStats = com.application.canopy.service.ServiceLocator.getInstance().getMonthStatsCache();
 
         buildWeekdayHeader();
+        buildDayCellPool();
+
+        // heatmap al posto della griglia, visibile solo nella vista "Anno"
+        yearHeatmap.setVisible(false);
+        yearHeatmap.setManaged(false);
+        VBox.setVgrow(yearHeatmap, Priority.ALWAYS);
+        calendarBox.getChildren().add(yearHeatmap);
+        // click su un giorno -> vista mese di quel giorno
+        yearHeatmap.setOnDayClicked(date -> {
+            currentMonth = YearMonth.from(date);
+            monthBtn.setSelected(true);
+            yearBtn.setSelected(false);
+            refresh();
+        });
 
         monthBtn.setOnAction(e -> {
             weekBtn.setSelected(false);
+            yearBtn.setSelected(false);
             refresh();
         });
         weekBtn.setOnAction(e -> {
             monthBtn.setSelected(false);
+            yearBtn.setSelected(false);
+            refresh();
+        });
+        yearBtn.setOnAction(e -> {
+            monthBtn.setSelected(false);
+            weekBtn.setSelected(false);
             refresh();
         });
 
         prevBtn.setOnAction(e -> {
-            if (monthBtn.isSelected())
+            if (yearBtn.isSelected())
+                currentYear--;
+            else if (monthBtn.isSelected())
                 currentMonth = currentMonth.minusMonths(1);
             else
                 currentWeekStart = currentWeekStart.minusWeeks(1);
             refresh();
         });
         nextBtn.setOnAction(e -> {
-            if (monthBtn.isSelected())
+            if (yearBtn.isSelected())
+                currentYear++;
+            else if (monthBtn.isSelected())
                 currentMonth = currentMonth.plusMonths(1);
             else
                 currentWeekStart = currentWeekStart.plusWeeks(1);
@@ -79,9 +132,9 @@ public class CalendarController {
         // Aggiornamento per caricare eventuali cambi nel DB al primo caricamento
         refresh();
 
-        // Listener che aggiorna il calendario appena viene caricato, se il newParent è
-        // il calendar allora aggiorna dal DB per visualizzare
-        // eventuali cambi in background mentre si era in altre pagine
+        // Listener che aggiorna il calendario appena viene mostrato, per visualizzare
+        // eventuali cambi in background mentre si era in altre pagine (pomodori finiti):
+        // le cache sono già aggiornate dai listener del repository, niente DB
         root.parentProperty().addListener((obs, oldParent, newParent) -> {
             if (newParent != null) {
                 refresh();
@@ -112,10 +165,17 @@ public class CalendarController {
         }
     }
 
-    // Ricarica i dati prendendoli dal DB
+    // Ridisegna il periodo corrente (i dati arrivano dalle cache, il DB solo la prima volta)
     private void refresh() {
-        // 1) Ricarica le statistiche dalla tabella plant_activity per il mese corrente
-        reloadStatsForCurrentMonth();
+        boolean year = yearBtn.isSelected();
+        showYearView(year);
+        if (year) {
+            refreshYear();
+            return;
+        }
+
+        // 1) Mesi visibili nella griglia in cache (letti solo la prima volta)
+        preloadVisibleDays();
 
         // 2) Ricostruisce la griglia (mese o settimana)
         if (monthBtn.isSelected()) {
@@ -133,143 +193,127 @@ public class CalendarController {
             rightTitle.setText("Settimana di " + currentWeekStart);
         }
 
-        // 4) Aggiorna lista piante del mese
-        listMonth.setItems(computeMonthStats());
-        updateSummary();
+        // 4) Aggiorna lista piante e riepilogo del periodo
+        if (statistics() != null) {
+            showStats(monthBtn.isSelected()
+                    ? statistics.forMonth(currentMonth)
+                    : statistics.forRange(currentWeekStart, currentWeekStart.plusDays(6)));
+        } else {
+            listMonth.setItems(computeMonthStats());
+            updateSummary(null);
+        }
     }
 
-    // Legge dal DB tutte le PlantActivity in un range che copre il mese corrente
-    private void reloadStatsForCurrentMonth() {
-        dailyStats.clear();
-        if (repository == null)
-            return;
+    // Vista "Anno": heatmap e totali per pianta dalla cache (query solo al primo accesso all'anno)
+    private void refreshYear() {
+        YearActivityCache.YearData data = yearCache != null ? yearCache.get(currentYear) : null;
 
-        YearMonth month = currentMonth;
-        LocalDate first = month.atDay(1);
-        LocalDate last = month.atEndOfMonth();
+        yearHeatmap.setData(currentYear, data != null ? data.minutesPerDay() : null);
+        periodLabel.setText(String.valueOf(currentYear));
+        rightTitle.setText("Anno " + currentYear);
 
-        // Giorni margine extra, così copriamo anche le celle "grigie" prima/dopo il
-        // mese
-        LocalDate from = first.minusDays(7);
-        LocalDate to = last.plusDays(7);
+        if (statistics() != null) {
+            // i 12 mesi calcolati in parallelo, poi in cache: si ricalcola solo il mese corrente
+            showStats(statistics.forYear(currentYear));
+        } else {
+            listMonth.setItems(FXCollections.observableArrayList(
+                    data != null ? data.perPlant() : Collections.emptyList()));
+            updateSummary(null);
+        }
+    }
 
-        List<PlantActivity> activities;
-        try {
-            activities = repository.getActivitiesBetween(from, to);
-        } catch (SQLException e) {
-            e.printStackTrace();
+    // Null finché lo store delle attività è in caricamento: intanto si usano le query
+    private ActivityStatistics statistics() {
+        if (statistics == null)
+            statistics = com.application.canopy.service.ServiceLocator.getInstance().getActivityStatistics();
+        return statistics;
+    }
+
+    private void showStats(ActivityStats stats) {
+        listMonth.setItems(FXCollections.observableArrayList(stats.perPlant()));
+        updateSummary(stats);
+    }
+
+    private void showYearView(boolean year) {
+        if (yearHeatmap.isVisible() == year)
             return;
-        }
+        yearHeatmap.setVisible(year);
+        yearHeatmap.setManaged(year);
+        calendarGrid.setVisible(!year);
+        calendarGrid.setManaged(!year);
+        weekdayHeader.setVisible(!year);
+        weekdayHeader.setManaged(!year);
+    }
 
-        // Aggrega per giorno -> (nome pianta -> minuti)
-        Map<LocalDate, Map<String, Integer>> temp = new HashMap<>();
-        for (PlantActivity a : activities) {
-            LocalDate d = a.getDate();
-            temp.computeIfAbsent(d, k -> new HashMap<>())
-                    .merge(a.getPlantName(), a.getMinutes(), Integer::sum);
-        }
+    // Assicura in cache i giorni della griglia, con una sola lettura per i mesi mancanti
+    private void preloadVisibleDays() {
+        if (monthStats == null)
+            return;
 
-        // Converte in lista ordinata per minuti (desc) per ogni giorno
-        for (Map.Entry<LocalDate, Map<String, Integer>> entry : temp.entrySet()) {
-            LocalDate date = entry.getKey();
-            Map<String, Integer> plantMap = entry.getValue();
+        if (monthBtn.isSelected()) {
+            // Giorni margine extra, così copriamo anche le celle "grigie" prima/dopo il mese
+            monthStats.preload(currentMonth.atDay(1).minusDays(7), currentMonth.atEndOfMonth().plusDays(7));
+        } else {
+            monthStats.preload(currentWeekStart, currentWeekStart.plusDays(6));
+        }
+    }
 
-            List<PlantStat> stats = plantMap.entrySet().stream()
-                    .map(e -> new PlantStat(e.getKey(), e.getValue()))
-                    .sorted(Comparator.comparingInt((PlantStat p) -> p.minutes).reversed())
-                    .collect(Collectors.toList());
+    private List<PlantStat> statsFor(LocalDate date) {
+        return monthStats != null ? monthStats.forDay(date) : Collections.emptyList();
+    }
 
-            dailyStats.put(date, stats);
+    // Crea le celle una sola volta e le aggiunge alla griglia nella loro posizione fissa
+    private void buildDayCellPool() {
+        calendarGrid.getChildren().clear();
+        calendarGrid.getColumnConstraints().setAll(equalCols(7));
+        for (int r = 0; r < GRID_ROWS; r++) {
+            for (int c = 0; c < 7; c++) {
+                DayCell cell = new DayCell();
+                dayCells[r * 7 + c] = cell;
+                calendarGrid.add(cell, c, r);
+            }
         }
     }
 
     // Costruzione griglia mese
     private void buildMonth() {
-        calendarGrid.getChildren().clear();
-        calendarGrid.getColumnConstraints().setAll(equalCols(7));
-        calendarGrid.getRowConstraints().setAll(equalRows(6));
+        setGridRows(GRID_ROWS);
 
         LocalDate first = currentMonth.atDay(1);
         int shift = first.getDayOfWeek().getValue() - 1; // 0..6 (Lunedì = 1)
         LocalDate start = first.minusDays(shift);
         LocalDate today = LocalDate.now();
 
-        for (int r = 0; r < 6; r++) {
-            for (int c = 0; c < 7; c++) {
-                LocalDate date = start.plusDays(r * 7 + c);
-                calendarGrid.add(makeDayCell(date, today, date.getMonth().equals(currentMonth.getMonth())), c, r);
-            }
+        for (int i = 0; i < dayCells.length; i++) {
+            LocalDate date = start.plusDays(i);
+            dayCells[i].bind(date, today, date.getMonth().equals(currentMonth.getMonth()), statsFor(date));
         }
         periodLabel.setText(
                 cap(currentMonth.getMonth().getDisplayName(TextStyle.FULL, locale)) + " " + currentMonth.getYear());
     }
 
     private void buildWeek() {
-        calendarGrid.getChildren().clear();
-        calendarGrid.getColumnConstraints().setAll(equalCols(7));
-        calendarGrid.getRowConstraints().setAll(equalRows(1));
+        setGridRows(1);
 
         LocalDate today = LocalDate.now();
         for (int c = 0; c < 7; c++) {
             LocalDate d = currentWeekStart.plusDays(c);
-            calendarGrid.add(makeDayCell(d, today, true), c, 0);
+            dayCells[c].bind(d, today, true, statsFor(d));
         }
         periodLabel.setText("Settimana di " + currentWeekStart);
     }
 
-    /**
-     * Crea la cella di un singolo giorno.
-     * - Numero giorno
-     * - Icona della pianta con più minuti (se esiste)
-     * - Hover: nome + minuti
-     * - Click: apre il dettaglio del giorno nel pannello destro
-     */
-    private Pane makeDayCell(LocalDate date, LocalDate today, boolean inMonth) {
-        BorderPane cell = new BorderPane();
-        cell.getStyleClass().add("day-cell");
-        if (!inMonth)
-            cell.getStyleClass().add("day-cell-out");
-        if (date.equals(today))
-            cell.getStyleClass().add("day-cell-today");
-
-        Label day = new Label(String.valueOf(date.getDayOfMonth()));
-        day.getStyleClass().add("day-number");
-        BorderPane.setMargin(day, new Insets(6));
-
-        ImageView plantImg = new ImageView();
-        plantImg.setFitWidth(76);
-        plantImg.setFitHeight(76);
-        plantImg.setPreserveRatio(true);
-        plantImg.setVisible(false);
-
-        BorderPane.setMargin(plantImg, new Insets(4));
-
-        // Recupera le statistiche di quel giorno dalla cache
-        List<PlantStat> statsForDay = dailyStats.get(date);
-        if (statsForDay != null && !statsForDay.isEmpty()) {
-            // Pianta con più minuti = prima della lista (già ordinata desc)
-            PlantStat top = statsForDay.get(0);
-
-            Image img = loadIconForPlantName(top.name);
-            if (img != null) {
-                plantImg.setImage(img);
-                plantImg.setVisible(true);
-            }
-
-            Tooltip tooltip = new Tooltip(top.name + " (" + top.minutes + " min)");
-            Tooltip.install(cell, tooltip);
+    // Mostra solo le prime "rows" righe di celle, le altre restano fuori dal layout
+    private void setGridRows(int rows) {
+        if (gridRows == rows)
+            return;
+        gridRows = rows;
+        calendarGrid.getRowConstraints().setAll(equalRows(rows));
+        for (int i = 0; i < dayCells.length; i++) {
+            boolean shown = i < rows * 7;
+            dayCells[i].setVisible(shown);
+            dayCells[i].setManaged(shown);
         }
-
-        cell.setTop(day);
-
-        cell.setCenter(plantImg);
-        BorderPane.setMargin(plantImg, new Insets(4));
-
-        cell.setMinSize(90, 110);
-
-        cell.setOnMouseClicked(e -> showDayDetailsPopup(date));
-
-        return cell;
     }
 
     private void showDayDetailsPopup(LocalDate date) {
@@ -280,13 +324,13 @@ public class CalendarController {
 
             DailyStatsController controller = loader.getController();
             // data e lista di stats
-            List<PlantStat> stats = getStatsForDate(date);
+            List<PlantStat> stats = statsFor(date);
             controller.setData(date, stats);
 
             javafx.scene.Scene scene = new javafx.scene.Scene(view, 900, 600);
 
-            // 1. CARICAMENTO STILI GLOBALI
-            scene.getStylesheets().add(getClass().getResource("/css/base.css").toExternalForm());
+            // 1. CARICAMENTO STILI GLOBALI (URL già risolto, il foglio è in cache in JavaFX)
+            scene.getStylesheets().add(com.application.canopy.model.ThemeManager.getBaseStylesheet());
 
             // 2. Caricamento Font
             com.application.canopy.model.FontManager.applyCurrentFont(scene);
@@ -296,14 +340,9 @@ public class CalendarController {
             stage.initModality(javafx.stage.Modality.APPLICATION_MODAL);
             stage.setScene(scene);
 
-            // 3. APPLICAZIONE CLASSE TEMA E SFONDO ROOT
-            if (root.getScene() != null && root.getScene().getRoot() != null) {
-                view.getStyleClass().setAll(root.getScene().getRoot().getStyleClass());
-                view.getStyleClass().add("stats-root");
-            } else {
-                view.getStyleClass().add("theme-dark");
-                view.getStyleClass().add("stats-root");
-            }
+            // 3. TEMA (foglio del tema sulla root) E SFONDO ROOT
+            com.application.canopy.model.ThemeManager.applyTheme(view);
+            view.getStyleClass().add("stats-root");
 
             stage.showAndWait();
 
@@ -314,64 +353,38 @@ public class CalendarController {
 
     // Dettaglio sommario del mese (DESTRA)
 
-    // Aggrega tutte le dailyStats del mese corrente in una lista di PlantStat:
+    // Aggrega le statistiche giornaliere del mese corrente in una lista di PlantStat:
     // una riga per pianta, con minuti sommati sul mese.
     private ObservableList<PlantStat> computeMonthStats() {
-        Map<String, Integer> aggregated = new HashMap<>();
-
-        for (Map.Entry<LocalDate, List<PlantStat>> entry : dailyStats.entrySet()) {
-            LocalDate date = entry.getKey();
-            if (!YearMonth.from(date).equals(currentMonth))
-                continue;
-
-            for (PlantStat ps : entry.getValue()) {
-                aggregated.merge(ps.name, ps.minutes, Integer::sum);
-            }
-        }
-
-        ObservableList<PlantStat> result = FXCollections.observableArrayList();
-        aggregated.forEach((name, minutes) -> result.add(new PlantStat(name, minutes)));
-        result.sort(Comparator.comparingInt((PlantStat p) -> p.minutes).reversed());
-        return result;
+        if (monthStats == null)
+            return FXCollections.observableArrayList();
+        return FXCollections.observableArrayList(
+                ActivityAggregator.forMonth(monthStats.forMonth(currentMonth), currentMonth));
     }
 
-    private void updateSummary() {
+    private void updateSummary(ActivityStats stats) {
         int total = listMonth.getItems().stream().mapToInt(p -> p.minutes).sum();
         summaryLabel.setText("Tot: " + total + " min");
-    }
-
-    // Recupera le statistiche di un singolo giorno.
-    private List<PlantStat> getStatsForDate(LocalDate date) {
-        List<PlantStat> stats = dailyStats.get(date);
-        if (stats != null)
-            return stats;
-
-        if (repository == null)
-            return Collections.emptyList();
-
-        try {
-            List<PlantActivity> activities = repository.getActivitiesForDate(date);
-            if (activities.isEmpty()) {
-                dailyStats.put(date, Collections.emptyList());
-                return Collections.emptyList();
-            }
-
-            Map<String, Integer> agg = new HashMap<>();
-            for (PlantActivity a : activities) {
-                agg.merge(a.getPlantName(), a.getMinutes(), Integer::sum);
-            }
 
-            stats = agg.entrySet().stream()
-                    .map(e -> new PlantStat(e.getKey(), e.getValue()))
-                    .sorted(Comparator.comparingInt((PlantStat p) -> p.minutes).reversed())
-                    .collect(Collectors.toList());
+        boolean insight = stats != null && stats.activeDays() > 0;
+        insightLabel.setVisible(insight);
+        insightLabel.setManaged(insight);
+        if (!insight)
+            return;
 
-            dailyStats.put(date, stats);
-            return stats;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return Collections.emptyList();
-        }
+        StringBuilder sb = new StringBuilder()
+                .append(stats.activeDays()).append(stats.activeDays() == 1 ? " giorno attivo" : " giorni attivi")
+                .append(" · media ").append(Math.round(stats.averagePerActiveDay())).append(" min al giorno");
+        // solo se nel mese c'è almeno un pomodoro (i minuti aggiunti a mano non sono sessioni)
+        if (stats.sessions() > 0)
+            sb.append(", ").append(Math.round(stats.averagePerSession())).append(" a sessione");
+        sb.append("\nGiorno più attivo: ")
+                .append(DayOfWeek.of(stats.busiestWeekday() + 1).getDisplayName(TextStyle.FULL, locale));
+        // l'ora c'è solo per i pomodori (i minuti aggiunti a mano non ce l'hanno)
+        int hour = stats.busiestHour();
+        if (hour >= 0)
+            sb.append(String.format(" · fascia %02d–%02d", hour, (hour + 1) % 24));
+        insightLabel.setText(sb.toString());
     }
 
     // Aggiunge minuti per una pianta su un giorno specifico
@@ -386,12 +399,13 @@ public class CalendarController {
             return;
         }
 
+        // le cache hanno già il giorno aggiornato (listener del repository): si ridisegna e basta
         refresh();
     }
 
-    // Carica l'icona per una pianta specifica
+    // Carica l'icona per una pianta specifica (già ridotta alla dimensione della cella)
     private Image loadIconForPlantName(String plantName) {
-        return com.application.canopy.util.ResourceManager.getPlantThumbnailByName(plantName);
+        return com.application.canopy.util.ResourceManager.getPlantThumbnailByName(plantName, DAY_ICON_SIZE);
     }
 
     // Helper per creare colonne con width uguale
@@ -421,17 +435,90 @@ public class CalendarController {
         return s.substring(0, 1).toUpperCase(locale) + s.substring(1);
     }
 
-    // Oggetto statistica pianta
-    public static class PlantStat {
-        public final String name;
-        public final int minutes;
+    /**
+     * Cella di un singolo giorno, riusata tra un mese e l'altro.
+     * - Numero giorno
+     * - Icona della pianta con più minuti (se esiste)
+     * - Hover: nome + minuti
+     * - Click: apre il dettaglio del giorno nel pannello destro
+     */
+    private final class DayCell extends BorderPane {
+        private final Label day = new Label();
+        private final ImageView plantImg = new ImageView();
+        private Tooltip tooltip;
+        private boolean tooltipInstalled;
+        private LocalDate date;
+        private String shownPlant;
+
+        DayCell() {
+            getStyleClass().add("day-cell");
+
+            day.getStyleClass().add("day-number");
+            BorderPane.setMargin(day, new Insets(6));
+
+            plantImg.setFitWidth(DAY_ICON_SIZE);
+            plantImg.setFitHeight(DAY_ICON_SIZE);
+            plantImg.setPreserveRatio(true);
+            plantImg.setVisible(false);
+            BorderPane.setMargin(plantImg, new Insets(4));
+
+            setTop(day);
+            setCenter(plantImg);
+            setMinSize(90, 110);
+
+            setOnMouseClicked(e -> {
+                if (date != null)
+                    showDayDetailsPopup(date);
+            });
+        }
+
+        void bind(LocalDate date, LocalDate today, boolean inMonth, List<PlantStat> statsForDay) {
+            this.date = date;
+            day.setText(String.valueOf(date.getDayOfMonth()));
+            pseudoClassStateChanged(OUT, !inMonth);
+            pseudoClassStateChanged(TODAY, date.equals(today));
+
+            if (statsForDay == null || statsForDay.isEmpty()) {
+                shownPlant = null;
+                plantImg.setVisible(false);
+                if (tooltipInstalled) {
+                    Tooltip.uninstall(this, tooltip);
+                    tooltipInstalled = false;
+                }
+                return;
+            }
+
+            // Pianta con più minuti = prima della lista (già ordinata desc)
+            PlantStat top = statsForDay.get(0);
+
+            // l'immagine si cambia solo se la pianta è diversa
+            if (!top.name.equals(shownPlant)) {
+                shownPlant = top.name;
+                if (com.application.canopy.util.ResourceManager.applyAtlasThumbnail(plantImg,
+                        com.application.canopy.util.ResourceManager.thumbFileForName(top.name))) {
+                    plantImg.setVisible(true);
+                } else {
+                    Image img = loadIconForPlantName(top.name);
+                    plantImg.setImage(img);
+                    plantImg.setVisible(img != null);
+                }
+            } else {
+                plantImg.setVisible(plantImg.getImage() != null);
+            }
 
-        public PlantStat(String name, int minutes) {
-            this.name = name;
-            this.minutes = minutes;
+            if (tooltip == null)
+                tooltip = new Tooltip();
+            tooltip.setText(top.name + " (" + top.minutes + " min)");
+            if (!tooltipInstalled) {
+                Tooltip.install(this, tooltip);
+                tooltipInstalled = true;
+            }
         }
     }
 
+    private static final PseudoClass OUT = PseudoClass.getPseudoClass("out");
+    private static final PseudoClass TODAY = PseudoClass.getPseudoClass("today");
+
     // Oggetto cella da passare alla lista statistiche
     private static class PlantCell extends ListCell<PlantStat> {
         private final HBox root = new HBox(8);
@@ -1,11 +1,12 @@
 package com.application.canopy.controller;
 
-import com.application.canopy.controller.CalendarController.PlantStat;
 import com.application.canopy.db.PlantActivityRepository;
 import com.application.canopy.model.GameState;
 import com.application.canopy.model.Plant;
 import com.application.canopy.model.PlantActivity;
+import com.application.canopy.model.PlantStat;
 import com.application.canopy.model.ThemeManager;
+import com.application.canopy.service.ActivityStore;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
@@ -41,10 +42,12 @@ public class DailyStatsController {
     private ListView<PlantStat> detailsList;
 
     private PlantActivityRepository repository;
+    private ActivityStore store;
 
     @FXML
     public void initialize() {
         repository = com.application.canopy.service.ServiceLocator.getInstance().getPlantActivityRepository();
+        store = com.application.canopy.service.ServiceLocator.getInstance().getActivityStore();
 
         // cella personalizzata per la lista
         detailsList.setCellFactory(lv -> new ListCell<>() {
@@ -135,73 +138,82 @@ public class DailyStatsController {
         // Cancelliamo i dati precedenti per sovrascriverli
         lineChart.getData().clear();
 
-        try {
-            // Otteniamo tutte le attività comprese tra la data di inizio e la data target
-            List<PlantActivity> activities = repository.getActivitiesBetween(startDate, targetDate);
-
-            // Mappa piante -> colore della pianta
-            Map<String, String> plantColors = getPlantColors();
-
-            // Identifica le piante attive in questo periodo di 7 giorni
-            Set<String> activePlants = activities.stream()
-                    .map(PlantActivity::getPlantName)
-                    .collect(Collectors.toSet());
-
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM");
-
-            // Crea una linea sul grafico per le piante attive
-            for (String plantName : activePlants) {
-                XYChart.Series<String, Number> series = new XYChart.Series<>();
-                series.setName(plantName);
-
-                // Popola i dati per i 7 giorni
-                for (int i = 0; i < 7; i++) {
-                    LocalDate d = startDate.plusDays(i);
-                    // Somma i minuti per questa pianta per ogni giorno
-                    int min = activities.stream()
-                            .filter(a -> a.getDate().equals(d) && a.getPlantName().equals(plantName))
-                            .mapToInt(PlantActivity::getMinutes)
-                            .sum();
-
-                    String label = d.format(formatter);
-                    XYChart.Data<String, Number> data = new XYChart.Data<>(label, min);
-                    series.getData().add(data);
-                }
+        // Minuti per pianta e per giorno, già aggregati in un solo passaggio sulle attività in memoria
+        Map<String, int[]> perPlant = minutesPerPlantPerDay(startDate, targetDate);
+
+        // Mappa piante -> colore della pianta
+        Map<String, String> plantColors = getPlantColors();
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM");
+
+        // Crea una linea sul grafico per le piante attive in questo periodo di 7 giorni
+        for (Map.Entry<String, int[]> entry : perPlant.entrySet()) {
+            String plantName = entry.getKey();
+            int[] minutesPerDay = entry.getValue();
 
-                // Aggiunge la linea al lineChart
-                lineChart.getData().add(series);
+            XYChart.Series<String, Number> series = new XYChart.Series<>();
+            series.setName(plantName);
 
-                // Applica lo stile
-                String color = plantColors.get(plantName);
-                if (color != null) {
-                    if (series.getNode() != null) {
-                        series.getNode().setStyle("-fx-stroke: " + color + ";");
+            // Popola i dati per i 7 giorni
+            for (int i = 0; i < 7; i++) {
+                String label = startDate.plusDays(i).format(formatter);
+                XYChart.Data<String, Number> data = new XYChart.Data<>(label, minutesPerDay[i]);
+                series.getData().add(data);
+            }
+
+            // Aggiunge la linea al lineChart
+            lineChart.getData().add(series);
+
+            // Applica lo stile
+            String color = plantColors.get(plantName);
+            if (color != null) {
+                if (series.getNode() != null) {
+                    series.getNode().setStyle("-fx-stroke: " + color + ";");
+                } else {
+                    series.nodeProperty().addListener((obs, oldNode, newNode) -> {
+                        if (newNode != null) {
+                            newNode.setStyle("-fx-stroke: " + color + ";");
+                        }
+                    });
+                }
+
+                // Stile della legenda e dei punti
+                for (XYChart.Data<String, Number> data : series.getData()) {
+                    if (data.getNode() != null) {
+                        data.getNode().setStyle("-fx-background-color: " + color + ", white;");
                     } else {
-                        series.nodeProperty().addListener((obs, oldNode, newNode) -> {
+                        data.nodeProperty().addListener((obs, oldNode, newNode) -> {
                             if (newNode != null) {
-                                newNode.setStyle("-fx-stroke: " + color + ";");
+                                newNode.setStyle("-fx-background-color: " + color + ", white;");
                             }
                         });
                     }
-
-                    // Stile della legenda e dei punti
-                    for (XYChart.Data<String, Number> data : series.getData()) {
-                        if (data.getNode() != null) {
-                            data.getNode().setStyle("-fx-background-color: " + color + ", white;");
-                        } else {
-                            data.nodeProperty().addListener((obs, oldNode, newNode) -> {
-                                if (newNode != null) {
-                                    newNode.setStyle("-fx-background-color: " + color + ", white;");
-                                }
-                            });
-                        }
-                    }
                 }
             }
+        }
+    }
 
+    // Dallo store in memoria; se non c'è (ancora in caricamento, o DB non disponibile
+    // all'avvio) si riprova con una query
+    private Map<String, int[]> minutesPerPlantPerDay(LocalDate from, LocalDate to) {
+        if (store == null)
+            store = com.application.canopy.service.ServiceLocator.getInstance().getActivityStore();
+        if (store != null)
+            return store.minutesPerPlantPerDay(from, to);
+
+        Map<String, int[]> perPlant = new LinkedHashMap<>();
+        if (repository == null)
+            return perPlant;
+        try {
+            int days = (int) (to.toEpochDay() - from.toEpochDay()) + 1;
+            for (PlantActivity a : repository.getActivitiesBetween(from, to)) {
+                perPlant.computeIfAbsent(a.getPlantName(), k -> new int[days])
+                        [(int) (a.getDate().toEpochDay() - from.toEpochDay())] += a.getMinutes();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return perPlant;
     }
 
     private Map<String, String> getPlantColors() {
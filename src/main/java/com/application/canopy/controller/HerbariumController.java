@@ -6,7 +6,6 @@ import com.application.canopy.model.Plant;
 import com.application.canopy.model.UserPlantState;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
@@ -16,10 +15,12 @@ import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Text;
 
 import javafx.geometry.Pos;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.function.Predicate;
 
 public class HerbariumController {
 
@@ -126,7 +127,10 @@ public class HerbariumController {
 
     // Inizializzazione strutture dati
     private final ObservableList<PlantItem> source = FXCollections.observableArrayList();
-    private FilteredList<PlantItem> filtered;
+    // id pianta -> item, per tradurre i risultati dell'indice di ricerca
+    private final Map<String, PlantItem> itemsById = new HashMap<>();
+    // piante mostrate nella lista, già filtrate e ordinate per rilevanza
+    private final ObservableList<PlantItem> filtered = FXCollections.observableArrayList();
 
     private final GameState gameState = GameState.getInstance();
 
@@ -136,7 +140,7 @@ public class HerbariumController {
 
         if (plantsList != null) {
             plantsList.setCellFactory(lv -> new PlantCardCell());
-            filtered = new FilteredList<>(source, p -> true);
+            filtered.setAll(source);
             plantsList.setItems(filtered);
         }
 
@@ -162,11 +166,6 @@ public class HerbariumController {
                     .addListener((obs, old, sel) -> showPlant(sel));
         }
 
-        if (herbRoot != null && masonryBoard != null) {
-            herbRoot.minHeightProperty().bind(masonryBoard.heightProperty());
-            herbRoot.prefHeightProperty().bind(masonryBoard.heightProperty());
-        }
-
         // Collegamento clip <-> card
         bindClipToCard(heroClip, heroCard);
         bindClipToCard(variant1Clip, variant1Card);
@@ -223,6 +222,7 @@ public class HerbariumController {
     // Costruzione della lista delle piante
     private void loadFromGameState() {
         source.clear();
+        itemsById.clear();
         for (UserPlantState state : gameState.getAllPlantStates()) {
             Plant p = state.getPlant();
             Category cat = classifyPlant(p);
@@ -234,6 +234,7 @@ public class HerbariumController {
                     p.getCareTips(),
                     cat,
                     state.isUnlocked()));
+            itemsById.put(p.getId(), source.get(source.size() - 1));
         }
     }
 
@@ -258,24 +259,31 @@ public class HerbariumController {
     }
 
     // Filtri
+    // La ricerca usa l'indice invertito di GameState (prefissi, senza accenti):
+    // ogni tasto costa una lookup sulle parole, non una scansione di tutti i testi
     private void applyFilters() {
-        if (filtered == null)
-            return;
-
-        String q = searchField.getText() == null ? "" : searchField.getText().trim().toLowerCase(Locale.ROOT);
+        String q = searchField.getText() == null ? "" : searchField.getText().trim();
         EnumSet<Category> cats = selectedCategories();
+        boolean allCategories = cats.contains(Category.ALL);
 
-        Predicate<PlantItem> pred = p -> {
-            boolean categoryOk = cats.contains(Category.ALL) || cats.contains(p.category);
-            if (!categoryOk)
-                return false;
-            if (q.isEmpty())
-                return true;
-            return (p.name + " " + p.description + " " + p.curiosity + " " + p.care)
-                    .toLowerCase(Locale.ROOT)
-                    .contains(q);
-        };
-        filtered.setPredicate(pred);
+        List<PlantItem> result = new ArrayList<>();
+        if (q.isEmpty()) {
+            for (PlantItem p : source) {
+                if (allCategories || cats.contains(p.category))
+                    result.add(p);
+            }
+        } else {
+            for (Plant plant : gameState.getSearchIndex().search(q)) {
+                PlantItem p = itemsById.get(plant.getId());
+                if (p != null && (allCategories || cats.contains(p.category)))
+                    result.add(p);
+            }
+        }
+
+        // la lista si tocca solo se il risultato è cambiato
+        if (!filtered.equals(result)) {
+            filtered.setAll(result);
+        }
     }
 
     private EnumSet<Category> selectedCategories() {
@@ -378,9 +386,14 @@ public class HerbariumController {
     }
 
     private Image loadPlantIconImage(Plant plant) {
+        return loadPlantIconImage(plant, 0);
+    }
+
+    // size > 0: miniatura decodificata già alla dimensione della cella
+    private Image loadPlantIconImage(Plant plant, double size) {
         String base = imageBaseFor(plant);
 
-        return com.application.canopy.util.ResourceManager.loadFirstExisting(
+        return com.application.canopy.util.ResourceManager.loadFirstExisting(size,
                 "/com/application/canopy/view/components/images/thumbs/" + capitalizeFirst(base) + ".png",
                 "/com/application/canopy/view/components/images/thumbs/" + base + ".png",
                 "/com/application/canopy/view/components/images/thumbs/" + base + ".jpg");
@@ -392,7 +405,7 @@ public class HerbariumController {
     }
 
     private Image loadThumbFor(Plant plant) {
-        Image img = loadPlantIconImage(plant);
+        Image img = loadPlantIconImage(plant, CELL_ICON_SIZE);
         if (img == null) {
             System.err.println("[Herbarium] Nessuna immagine trovata per " + plant.getName());
         }
@@ -405,6 +418,8 @@ public class HerbariumController {
         return Character.toUpperCase(s.charAt(0)) + s.substring(1);
     }
 
+    private static final double CELL_ICON_SIZE = 40;
+
     // Lista delle piante a destra (celle)
     private class PlantCardCell extends ListCell<PlantItem> {
         private final HBox root = new HBox(10);
@@ -421,13 +436,13 @@ public class HerbariumController {
             root.getStyleClass().add("plant-card");
             root.setAlignment(Pos.CENTER_LEFT);
 
-            iconContainer.setMinSize(40, 40);
-            iconContainer.setPrefSize(40, 40);
-            iconContainer.setMaxSize(40, 40);
+            iconContainer.setMinSize(CELL_ICON_SIZE, CELL_ICON_SIZE);
+            iconContainer.setPrefSize(CELL_ICON_SIZE, CELL_ICON_SIZE);
+            iconContainer.setMaxSize(CELL_ICON_SIZE, CELL_ICON_SIZE);
             iconContainer.getChildren().add(thumb);
 
-            thumb.setFitWidth(40);
-            thumb.setFitHeight(40);
+            thumb.setFitWidth(CELL_ICON_SIZE);
+            thumb.setFitHeight(CELL_ICON_SIZE);
             thumb.setPreserveRatio(true);
             thumb.setSmooth(true);
 
@@ -453,7 +468,9 @@ public class HerbariumController {
                 lock.setText(item.unlocked ? "" : "🔒");
 
                 root.setOpacity(item.unlocked ? 1.0 : 0.5);
-                thumb.setImage(loadThumbFor(item.plant));
+                if (!com.application.canopy.util.ResourceManager.applyAtlasThumbnail(thumb, item.plant.getThumbFile())) {
+                    thumb.setImage(loadThumbFor(item.plant));
+                }
 
                 setGraphic(root);
             }
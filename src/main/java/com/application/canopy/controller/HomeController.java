@@ -5,11 +5,12 @@ import com.application.canopy.model.GameState;
 import com.application.canopy.model.Plant;
 import com.application.canopy.model.ThemeManager;
 import com.application.canopy.service.PomodoroTimerService;
+import com.application.canopy.util.Metrics;
+import com.application.canopy.util.ResourceManager;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
@@ -23,7 +24,7 @@ import javafx.scene.input.MouseEvent;
 
 import java.net.URL;
 import java.sql.SQLException;
-import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 public class HomeController {
 
@@ -49,6 +50,9 @@ public class HomeController {
     private static final int MAX_MINUTES = 120; // 2 ore max da ghiera
     private static final double RADIUS = 250.0; // deve corrispondere all'FXML
 
+    // caricamento dell'FXML del dialog del timer (vedi util.Metrics)
+    private static final Metrics.Histogram TIMER_DIALOG_LOAD = Metrics.histogram("fxml.timer_dialog");
+
     @FXML
     private ProgressBar sessionProgress;
 
@@ -71,8 +75,12 @@ public class HomeController {
 
     private Plant currentPlant;
 
-    private final Image[] frames = new Image[4];
-    private Image wiltFrame = null;
+    private static final double PLANT_IMAGE_HEIGHT = 280; // fitHeight di img nell'FXML
+    private static final double LIST_ICON_SIZE = 48;
+
+    // stage 0..3: regioni dell'atlas della pianta (o immagini singole se manca)
+    private final ResourceManager.Frame[] frames = new ResourceManager.Frame[4];
+    private ResourceManager.Frame wiltFrame = null;
 
     @FXML
     private void initialize() {
@@ -313,7 +321,7 @@ public class HomeController {
                     && currentPlant != null) {
                 gameState.onPomodoroAborted(currentPlant);
                 if (wiltFrame != null)
-                    img.setImage(wiltFrame);
+                    wiltFrame.applyTo(img);
             } else {
                 showStage(0);
             }
@@ -336,9 +344,11 @@ public class HomeController {
                 return true;
             }
 
+            long t0 = System.nanoTime();
             FXMLLoader loader = new FXMLLoader(fxml);
             Parent content = loader.load();
             TimerDialogController controller = loader.getController();
+            TIMER_DIALOG_LOAD.recordSince(t0);
 
             Dialog<ButtonType> dialog = new Dialog<>();
             dialog.setTitle("Configura timer");
@@ -349,9 +359,9 @@ public class HomeController {
             controller.setDialog(dialog);
 
             // Stile
-            URL css = getClass().getResource("/css/base.css");
+            String css = ThemeManager.getBaseStylesheet();
             if (css != null)
-                pane.getStylesheets().add(css.toExternalForm());
+                pane.getStylesheets().add(css);
             ThemeManager.applyTheme(pane);
 
             pane.getButtonTypes().add(ButtonType.CLOSE);
@@ -397,11 +407,16 @@ public class HomeController {
     private void logPlantActivityForCurrentPomodoro() {
         if (activityRepository == null || currentPlant == null)
             return;
+        int focusMinutes = timerService.getFocusMinutes();
+        // il pomodoro è appena finito: è iniziato focusMinutes fa. Giorno e ora sono quelli
+        // dell'inizio, anche se a cavallo della mezzanotte (ieri alle 23:50, non oggi)
+        LocalDateTime started = LocalDateTime.now().minusMinutes(focusMinutes);
         try {
             activityRepository.addActivity(
-                    LocalDate.now(),
+                    started.toLocalDate(),
                     currentPlant.getName(),
-                    timerService.getFocusMinutes());
+                    focusMinutes,
+                    started.toLocalTime().toSecondOfDay() / 60);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -440,8 +455,8 @@ public class HomeController {
             private final HBox root = new HBox(10, icon, texts);
             {
                 setPrefWidth(0);
-                icon.setFitWidth(48);
-                icon.setFitHeight(48);
+                icon.setFitWidth(LIST_ICON_SIZE);
+                icon.setFitHeight(LIST_ICON_SIZE);
                 icon.setPreserveRatio(true);
                 title.setStyle("-fx-font-weight: bold");
                 HBox.setHgrow(texts, Priority.ALWAYS);
@@ -456,7 +471,9 @@ public class HomeController {
                     title.setText(p.getName());
                     subtitle.setText(p.getDescription());
 
-                    icon.setImage(com.application.canopy.util.ResourceManager.getPlantThumbnail(p.getThumbFile()));
+                    if (!com.application.canopy.util.ResourceManager.applyAtlasThumbnail(icon, p.getThumbFile())) {
+                        icon.setImage(com.application.canopy.util.ResourceManager.getPlantThumbnail(p.getThumbFile(), LIST_ICON_SIZE));
+                    }
                     setGraphic(root);
                 }
             }
@@ -472,10 +489,10 @@ public class HomeController {
             return;
 
         for (int i = 0; i < frames.length; i++) {
-            frames[i] = com.application.canopy.util.ResourceManager.getGrowthImage(currentPlant, i);
+            frames[i] = ResourceManager.getGrowthFrame(currentPlant, i, PLANT_IMAGE_HEIGHT);
         }
         // il wilt frame per ora è stage0
-        wiltFrame = com.application.canopy.util.ResourceManager.getGrowthImage(currentPlant, 0);
+        wiltFrame = frames[0];
 
         img.setVisible(true);
         img.setPreserveRatio(true);
@@ -502,7 +519,7 @@ public class HomeController {
 
     private void showStage(int idx) {
         if (idx >= 0 && idx < frames.length && frames[idx] != null) {
-            img.setImage(frames[idx]);
+            frames[idx].applyTo(img);
         }
     }
 
@@ -517,7 +534,9 @@ public class HomeController {
     private void showIdleImage() {
         if (currentPlant != null) {
             // mostra icona/thumbnail
-            img.setImage(com.application.canopy.util.ResourceManager.getPlantThumbnail(currentPlant.getThumbFile()));
+            ResourceManager.Frame frame = ResourceManager.getGrowthFrame(currentPlant, 3, PLANT_IMAGE_HEIGHT);
+            if (frame != null)
+                frame.applyTo(img);
         }
     }
 }
@@ -1,16 +1,30 @@
 package com.application.canopy.controller;
 
 import com.application.canopy.db.PlantActivityRepository;
+import com.application.canopy.db.QueryStats;
 import com.application.canopy.model.FontManager;
 import com.application.canopy.model.FontManager.AppFont;
 import com.application.canopy.model.GameState;
 import com.application.canopy.model.ThemeManager;
+import com.application.canopy.service.ReportExporter;
+import com.application.canopy.util.FlightRecording;
+import com.application.canopy.util.FrameMonitor;
+import com.application.canopy.util.RenderPipeline;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.text.Font;
+import javafx.stage.FileChooser;
 
+import java.io.File;
 import java.sql.SQLException;
+import java.time.LocalDate;
 
 public class SettingsController {
 
@@ -32,12 +46,44 @@ public class SettingsController {
     @FXML
     private ComboBox<String> daltonismoCombo;
 
+    // pipeline di rendering
+    @FXML
+    private CheckBox hardwareRenderCheck;
+
+    @FXML
+    private Label renderInfoLabel;
+
+    @FXML
+    private CheckBox diagnosticsCheck;
+
+    @FXML
+    private CheckBox flightRecordingCheck;
+
+    // export report
+    @FXML
+    private DatePicker exportFromPicker, exportToPicker;
+    @FXML
+    private ComboBox<ReportExporter.Format> exportFormatCombo;
+    @FXML
+    private Button exportBtn;
+    @FXML
+    private HBox exportProgressBox;
+    @FXML
+    private ProgressBar exportProgress;
+    @FXML
+    private Label exportStatusLabel;
+
+    // export in corso (null se nessuno)
+    private ReportExporter runningExport;
+
     @FXML
     private void initialize() {
         setupFontCombo();
         setupModeCombo();
         setupThemeCombo();
         setupDaltonismoCombo();
+        setupRenderSection();
+        setupExportSection();
     }
 
     // reset calendario + gamestate
@@ -89,6 +135,103 @@ public class SettingsController {
         ok.showAndWait();
     }
 
+    // periodo di default: il mese in corso fino a oggi
+    private void setupExportSection() {
+        if (exportFormatCombo == null)
+            return;
+
+        LocalDate today = LocalDate.now();
+        exportFromPicker.setValue(today.withDayOfMonth(1));
+        exportToPicker.setValue(today);
+        exportFormatCombo.getItems().setAll(ReportExporter.Format.values());
+        exportFormatCombo.getSelectionModel().select(ReportExporter.Format.CSV);
+    }
+
+    @FXML
+    private void onExportReport() {
+        LocalDate from = exportFromPicker.getValue();
+        LocalDate to = exportToPicker.getValue();
+        ReportExporter.Format format = exportFormatCombo.getValue();
+        if (from == null || to == null || format == null || to.isBefore(from)) {
+            Alert warn = new Alert(Alert.AlertType.WARNING);
+            warn.setTitle("Esporta report");
+            warn.setHeaderText(null);
+            warn.setContentText("Scegli un periodo valido (la data di inizio non può essere dopo quella di fine) e un formato.");
+            warn.showAndWait();
+            return;
+        }
+
+        PlantActivityRepository repo = com.application.canopy.service.ServiceLocator.getInstance()
+                .getPlantActivityRepository();
+        if (repo == null) {
+            showExportError("Database non disponibile.");
+            return;
+        }
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Salva report");
+        chooser.setInitialFileName("canopy-report-" + from + "_" + to + "." + format.getExtension());
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(
+                format.toString(), "*." + format.getExtension()));
+        File file = chooser.showSaveDialog(root.getScene() != null ? root.getScene().getWindow() : null);
+        if (file == null)
+            return;
+
+        ReportExporter export = new ReportExporter(repo, from, to, format, file.toPath());
+        runningExport = export;
+
+        exportProgress.progressProperty().bind(export.progressProperty());
+        exportStatusLabel.textProperty().bind(export.messageProperty());
+        exportProgressBox.setVisible(true);
+        exportProgressBox.setManaged(true);
+        exportBtn.setDisable(true);
+
+        // al termine (in ogni caso) la barra si stacca dal task e resta l'esito
+        Runnable done = () -> {
+            runningExport = null;
+            exportProgress.progressProperty().unbind();
+            exportStatusLabel.textProperty().unbind();
+            exportBtn.setDisable(false);
+        };
+        export.setOnSucceeded(e -> {
+            done.run();
+            exportProgress.setProgress(1);
+            exportStatusLabel.setText(export.getValue() + " attività esportate in " + file.getName());
+        });
+        export.setOnCancelled(e -> {
+            done.run();
+            exportProgress.setProgress(0);
+            exportStatusLabel.setText("Export annullato");
+        });
+        export.setOnFailed(e -> {
+            done.run();
+            exportProgress.setProgress(0);
+            exportStatusLabel.setText("Export non riuscito");
+            Throwable error = export.getException();
+            if (error != null)
+                error.printStackTrace();
+            showExportError(error != null ? error.getMessage() : "Errore sconosciuto");
+        });
+
+        Thread t = new Thread(export, "canopy-report-export");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @FXML
+    private void onCancelExport() {
+        if (runningExport != null)
+            runningExport.cancel();
+    }
+
+    private void showExportError(String details) {
+        Alert error = new Alert(Alert.AlertType.ERROR);
+        error.setTitle("Errore");
+        error.setHeaderText("Impossibile esportare il report.");
+        error.setContentText("Dettagli: " + details);
+        error.showAndWait();
+    }
+
     // scelta font
     private void setupFontCombo() {
         if (fontCombo == null)
@@ -100,6 +243,10 @@ public class SettingsController {
                 AppFont.ROBOTO_MONO.getDisplayName(),
                 AppFont.NOTO_SERIF.getDisplayName());
 
+        // ogni voce è scritta nel proprio font: il font viene caricato (in background)
+        // solo quando la voce compare nella tendina
+        fontCombo.setCellFactory(list -> new FontPreviewCell());
+
         AppFont current = FontManager.getCurrentFont();
         fontCombo.getSelectionModel().select(current.getDisplayName());
 
@@ -116,6 +263,26 @@ public class SettingsController {
                 });
     }
 
+    // voce della tendina font con l'anteprima del font stesso
+    private static final class FontPreviewCell extends ListCell<String> {
+        @Override
+        protected void updateItem(String item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null) {
+                setText(null);
+                return;
+            }
+            setText(item);
+
+            AppFont font = AppFont.fromDisplayName(item);
+            FontManager.loadAsync(font).thenAcceptAsync(loaded -> {
+                // la cella potrebbe essere stata riusata per un'altra voce nel frattempo
+                if (loaded != null && item.equals(getItem()))
+                    setFont(Font.font(loaded.getFamily(), getFont().getSize()));
+            }, Platform::runLater);
+        }
+    }
+
     // scelta tema light/dark
     private void setupModeCombo() {
         if (modeCombo == null)
@@ -238,4 +405,139 @@ public class SettingsController {
                     ThemeManager.setColorVisionFilter(filterId, scene);
                 });
     }
+
+    // statistiche per istruzione SQL misurate dai repository (QueryStats)
+    @FXML
+    private void onShowQueryStats() {
+        TableView<QueryStats.Snapshot> table = new TableView<>();
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        table.setPrefSize(860, 420);
+        table.setPlaceholder(new Label("Nessuna query registrata"));
+
+        TableColumn<QueryStats.Snapshot, String> sqlCol = new TableColumn<>("SQL");
+        sqlCol.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(c.getValue().sql()));
+        sqlCol.setPrefWidth(360);
+        table.getColumns().add(sqlCol);
+        table.getColumns().add(numberColumn("Esecuzioni", s -> s.count()));
+        table.getColumns().add(numberColumn("Media ms", s -> s.avgMillis()));
+        table.getColumns().add(numberColumn("Max ms", s -> s.maxMillis()));
+        table.getColumns().add(numberColumn("Totale ms", s -> s.totalMillis()));
+        table.getColumns().add(numberColumn("Righe", s -> s.rows()));
+        table.getColumns().add(numberColumn("Lente", s -> s.slow()));
+        table.getColumns().add(numberColumn("Errori", s -> s.errors()));
+        table.setItems(FXCollections.observableArrayList(QueryStats.snapshot()));
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Statistiche query");
+        dialog.setHeaderText("Query eseguite da questo avvio, le più costose in cima. "
+                + "Quelle lente sono anche in data/slow-queries.log con il piano di esecuzione.");
+        DialogPane pane = dialog.getDialogPane();
+        pane.setContent(table);
+
+        String css = ThemeManager.getBaseStylesheet();
+        if (css != null)
+            pane.getStylesheets().add(css);
+        ThemeManager.applyTheme(pane);
+
+        ButtonType refresh = new ButtonType("Aggiorna", ButtonBar.ButtonData.OTHER);
+        ButtonType reset = new ButtonType("Azzera", ButtonBar.ButtonData.LEFT);
+        pane.getButtonTypes().addAll(refresh, reset, ButtonType.CLOSE);
+
+        // i due pulsanti aggiornano la tabella senza chiudere il dialog
+        pane.lookupButton(refresh).addEventFilter(javafx.event.ActionEvent.ACTION, e -> {
+            e.consume();
+            table.setItems(FXCollections.observableArrayList(QueryStats.snapshot()));
+        });
+        pane.lookupButton(reset).addEventFilter(javafx.event.ActionEvent.ACTION, e -> {
+            e.consume();
+            QueryStats.reset();
+            table.getItems().clear();
+        });
+
+        dialog.showAndWait();
+    }
+
+    private static TableColumn<QueryStats.Snapshot, Number> numberColumn(String title,
+            java.util.function.Function<QueryStats.Snapshot, Number> value) {
+        TableColumn<QueryStats.Snapshot, Number> col = new TableColumn<>(title);
+        col.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(value.apply(c.getValue())));
+        col.setCellFactory(c -> new TableCell<>() {
+            @Override
+            protected void updateItem(Number item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                } else if (item instanceof Double d) {
+                    setText(String.format("%.2f", d));
+                } else {
+                    setText(item.toString());
+                }
+            }
+        });
+        col.setStyle("-fx-alignment: CENTER-RIGHT;");
+        return col;
+    }
+
+    // pipeline di rendering + tempi di frame
+    private void setupRenderSection() {
+        if (hardwareRenderCheck != null) {
+            hardwareRenderCheck.setSelected(RenderPipeline.isHardwareEnabled());
+            hardwareRenderCheck.selectedProperty().addListener(
+                    (obs, oldVal, newVal) -> RenderPipeline.setHardwareEnabled(newVal));
+        }
+
+        // overlay della diagnostica, lo stesso che si apre con F12
+        if (diagnosticsCheck != null) {
+            diagnosticsCheck.selectedProperty().bindBidirectional(FrameMonitor.overlayVisibleProperty());
+        }
+
+        // registrazione JFR continua: salvata in data/recordings quando il thread FX si blocca
+        if (flightRecordingCheck != null) {
+            flightRecordingCheck.setSelected(FlightRecording.isContinuousEnabled());
+            flightRecordingCheck.selectedProperty().addListener(
+                    (obs, oldVal, newVal) -> FlightRecording.setContinuousEnabled(newVal));
+        }
+
+        if (renderInfoLabel == null || root == null)
+            return;
+
+        // misura i frame solo mentre la pagina è visibile: un AnimationTimer
+        // sempre attivo terrebbe occupato il renderer anche a finestra ferma
+        AnimationTimer frameTimer = new AnimationTimer() {
+            private long last;
+            private long lastUpdate;
+            private double avgMs;
+
+            @Override
+            public void start() {
+                last = 0;
+                avgMs = 0;
+                super.start();
+            }
+
+            @Override
+            public void handle(long now) {
+                if (last != 0) {
+                    double ms = (now - last) / 1_000_000.0;
+                    avgMs = avgMs == 0 ? ms : avgMs * 0.9 + ms * 0.1;
+                }
+                last = now;
+
+                if (now - lastUpdate > 500_000_000L && avgMs > 0) {
+                    lastUpdate = now;
+                    renderInfoLabel.setText(String.format("Pipeline attiva: %s · %.1f ms per frame (%.0f fps)",
+                            RenderPipeline.describeActive(), avgMs, 1000.0 / avgMs));
+                }
+            }
+        };
+
+        renderInfoLabel.setText("Pipeline attiva: " + RenderPipeline.describeActive());
+        root.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null) {
+                frameTimer.start();
+            } else {
+                frameTimer.stop();
+            }
+        });
+    }
 }
@@ -6,13 +6,33 @@ import java.sql.*;
 public final class DatabaseManager {
 
     private static Connection connection;
+    // file del DB aperto (o da aprire): resta anche dopo close()
+    private static Path dbFile;
 
     private DatabaseManager() {
     }
 
-    public static void init() throws SQLException {
-        if (connection != null)
-            return;
+    // Posizione file DB: -Dcanopy.db=<file>, altrimenti sottocartella progetto /data/canopy.db
+    public static synchronized void init() throws SQLException {
+        if (dbFile == null) {
+            String override = System.getProperty("canopy.db");
+            dbFile = override != null && !override.isBlank()
+                    ? Paths.get(override)
+                    : Paths.get(System.getProperty("user.dir"), "data", "canopy.db");
+        }
+        init(dbFile);
+    }
+
+    // Apre il DB nel file indicato (benchmark e test usano un DB temporaneo).
+    // Se è già aperto un altro file va chiamato prima close(): altrimenti errore, così
+    // un benchmark non finisce a scrivere sul DB vero dell'utente
+    public static synchronized void init(Path file) throws SQLException {
+        if (connection != null) {
+            if (samePath(file, dbFile))
+                return;
+            throw new SQLException("DB già aperto su " + dbFile + ", richiesto " + file
+                    + ": chiamare prima DatabaseManager.close()");
+        }
 
         try {
             Class.forName("org.sqlite.JDBC");
@@ -20,22 +40,27 @@ public final class DatabaseManager {
             throw new SQLException("SQLite JDBC driver non trovato", e);
         }
 
-        // Posizione file DB: sottocartella progetto /data/canopy.db
-        Path baseDir = Paths.get(System.getProperty("user.dir"), "data");
+        Path baseDir = file.toAbsolutePath().getParent();
         try {
             Files.createDirectories(baseDir);
         } catch (Exception e) {
             throw new SQLException("Impossibile creare la cartella del DB", e);
         }
 
-        Path dbPath = baseDir.resolve("canopy.db");
-        String url = "jdbc:sqlite:" + dbPath.toString();
+        dbFile = file;
+        String url = "jdbc:sqlite:" + file.toString();
 
-        connection = DriverManager.getConnection(url);
+        // con la diagnostica attiva ogni query diventa un evento JFR (vedi TracingConnection)
+        Connection raw = DriverManager.getConnection(url);
+        connection = TracingConnection.isEnabled() ? TracingConnection.wrap(raw) : raw;
 
         createTablesIfNeeded();
     }
 
+    private static boolean samePath(Path a, Path b) {
+        return b != null && a.toAbsolutePath().normalize().equals(b.toAbsolutePath().normalize());
+    }
+
     private static void createTablesIfNeeded() throws SQLException {
         // tabella attività piante
         String sql1 = """
@@ -43,13 +68,23 @@ public final class DatabaseManager {
                     id          INTEGER PRIMARY KEY AUTOINCREMENT,
                     date        TEXT    NOT NULL,
                     plant_name  TEXT    NOT NULL,
-                    minutes     INTEGER NOT NULL
+                    minutes     INTEGER NOT NULL,
+                    start_minute INTEGER
                 );
                 """;
 
+        // indice per le query per intervallo di date; contiene tutte le colonne lette,
+        // così le somme per giorno e per pianta (vista anno) si calcolano dal solo indice
+        String idx1 = """
+                CREATE INDEX IF NOT EXISTS idx_plant_activity_date
+                ON plant_activity (date, plant_name, minutes);
+                """;
+
         try (Statement st = connection.createStatement()) {
             st.execute(sql1);
+            st.execute(idx1);
         }
+        addColumnIfMissing("plant_activity", "start_minute", "INTEGER");
 
         // tabella preset timer
         // tabella preset timer
@@ -57,7 +92,22 @@ public final class DatabaseManager {
         com.application.canopy.db.TimerDatabase.ensureDefaults(connection);
     }
 
-    public static Connection getConnection() throws SQLException {
+    // DB creati prima della colonna: la aggiunge vuota (NULL = orario non noto)
+    private static void addColumnIfMissing(String table, String column, String type) throws SQLException {
+        try (Statement st = connection.createStatement();
+                ResultSet rs = st.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name")))
+                    return;
+            }
+        }
+        try (Statement st = connection.createStatement()) {
+            st.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+        }
+        System.out.println("[DatabaseManager] Aggiunta colonna " + table + "." + column);
+    }
+
+    public static synchronized Connection getConnection() throws SQLException {
         if (connection == null) {
             init();
         }
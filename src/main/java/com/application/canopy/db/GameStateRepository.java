@@ -5,7 +5,9 @@ import com.application.canopy.model.UserPlantState;
 
 import java.sql.*;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class GameStateRepository {
@@ -14,6 +16,31 @@ public class GameStateRepository {
 
     private static final String TABLE_GAME_STATE = "game_state";
     private static final String TABLE_USER_PLANT_STATE = "user_plant_state";
+    private static final String TABLE_ACTIVITY_CALENDAR = "activity_calendar";
+
+    // istruzioni con i loro tempi (QueryStats)
+    private static final QueryStats.Query LOAD_GLOBAL = QueryStats.query(
+            "SELECT key, value FROM " + TABLE_GAME_STATE);
+    private static final QueryStats.Query LOAD_PLANT_STATES = QueryStats.query(
+            "SELECT * FROM " + TABLE_USER_PLANT_STATE);
+    private static final QueryStats.Query LOAD_CALENDARS = QueryStats.query(
+            "SELECT scope, bitmap FROM " + TABLE_ACTIVITY_CALENDAR);
+    private static final QueryStats.Query ACTIVITY_DAYS = QueryStats.query(
+            "SELECT DISTINCT plant_name, date FROM plant_activity");
+    private static final QueryStats.Query SAVE_GLOBAL_KEY = QueryStats.query(
+            "INSERT OR REPLACE INTO " + TABLE_GAME_STATE + " (key, value) VALUES (?, ?)");
+    private static final QueryStats.Query SAVE_PLANT_STATE = QueryStats.query(
+            "INSERT OR REPLACE INTO " + TABLE_USER_PLANT_STATE + " (" +
+                    "plant_id, unlocked, total_pomodori, today_pomodori, dead," +
+                    " first_use_date, last_pomodoro_date, streak_days, max_streak_days" +
+                    ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+    private static final QueryStats.Query SAVE_CALENDAR = QueryStats.query(
+            "INSERT OR REPLACE INTO " + TABLE_ACTIVITY_CALENDAR + " (scope, bitmap) VALUES (?, ?)");
+    private static final QueryStats.Query CLEAR_GLOBAL = QueryStats.query("DELETE FROM " + TABLE_GAME_STATE);
+    private static final QueryStats.Query CLEAR_PLANT_STATES = QueryStats.query(
+            "DELETE FROM " + TABLE_USER_PLANT_STATE);
+    private static final QueryStats.Query CLEAR_CALENDARS = QueryStats.query(
+            "DELETE FROM " + TABLE_ACTIVITY_CALENDAR);
 
     public GameStateRepository(Connection connection) {
         this.connection = connection;
@@ -44,6 +71,13 @@ public class GameStateRepository {
                             "streak_days INTEGER NOT NULL," +
                             "max_streak_days INTEGER NOT NULL" +
                             ");");
+
+            // bitmap dei giorni attivi (globale e per pianta)
+            st.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS " + TABLE_ACTIVITY_CALENDAR + " (" +
+                            "scope TEXT PRIMARY KEY," +
+                            "bitmap BLOB NOT NULL" +
+                            ");");
         }
     }
 
@@ -53,16 +87,12 @@ public class GameStateRepository {
         if (connection == null)
             return data;
 
-        String sql = "SELECT key, value FROM " + TABLE_GAME_STATE;
-        try (Statement st = connection.createStatement();
-                ResultSet rs = st.executeQuery(sql)) {
-
-            while (rs.next()) {
+        try {
+            LOAD_GLOBAL.forEachRow(connection, QueryStats.NO_PARAMS, rs -> {
                 String key = rs.getString("key");
                 String value = rs.getString("value");
                 data.put(key, value);
-            }
-
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -74,15 +104,12 @@ public class GameStateRepository {
         if (connection == null)
             return result;
 
-        String sql = "SELECT * FROM " + TABLE_USER_PLANT_STATE;
-        try (Statement st = connection.createStatement();
-                ResultSet rs = st.executeQuery(sql)) {
-
-            while (rs.next()) {
+        try {
+            LOAD_PLANT_STATES.forEachRow(connection, QueryStats.NO_PARAMS, rs -> {
                 String plantId = rs.getString("plant_id");
                 Plant plant = findPlantById(plantId);
                 if (plant == null)
-                    continue;
+                    return;
 
                 boolean unlocked = rs.getInt("unlocked") != 0;
                 int totalPomodori = rs.getInt("total_pomodori");
@@ -104,8 +131,42 @@ public class GameStateRepository {
                         streakDays,
                         maxStreakDays);
                 result.put(plantId, ups);
-            }
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
+    // scope -> bitmap serializzata dei giorni attivi
+    public Map<String, byte[]> loadActivityCalendars() {
+        Map<String, byte[]> result = new HashMap<>();
+        if (connection == null)
+            return result;
 
+        try {
+            LOAD_CALENDARS.forEachRow(connection, QueryStats.NO_PARAMS,
+                    rs -> result.put(rs.getString("scope"), rs.getBytes("bitmap")));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
+    // Giorni distinti registrati nel calendario, per nome pianta.
+    // Serve a ricostruire le bitmap la prima volta che vengono introdotte.
+    public Map<String, List<LocalDate>> loadActivityDaysByPlantName() {
+        Map<String, List<LocalDate>> result = new HashMap<>();
+        if (connection == null)
+            return result;
+
+        try {
+            ACTIVITY_DAYS.forEachRow(connection, QueryStats.NO_PARAMS, rs -> {
+                LocalDate date = parseDate(rs.getString("date"));
+                if (date == null)
+                    return;
+                result.computeIfAbsent(rs.getString("plant_name"), k -> new ArrayList<>()).add(date);
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -115,9 +176,10 @@ public class GameStateRepository {
     public void clearAllData() {
         if (connection == null)
             return;
-        try (Statement st = connection.createStatement()) {
-            st.executeUpdate("DELETE FROM " + TABLE_GAME_STATE);
-            st.executeUpdate("DELETE FROM " + TABLE_USER_PLANT_STATE);
+        try {
+            CLEAR_GLOBAL.update(connection, QueryStats.NO_PARAMS);
+            CLEAR_PLANT_STATES.update(connection, QueryStats.NO_PARAMS);
+            CLEAR_CALENDARS.update(connection, QueryStats.NO_PARAMS);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -128,11 +190,11 @@ public class GameStateRepository {
     public void saveGlobalKey(String key, String value) {
         if (connection == null)
             return;
-        String sql = "INSERT OR REPLACE INTO " + TABLE_GAME_STATE + " (key, value) VALUES (?, ?)";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, key);
-            ps.setString(2, value == null ? "" : value);
-            ps.executeUpdate();
+        try {
+            SAVE_GLOBAL_KEY.update(connection, ps -> {
+                ps.setString(1, key);
+                ps.setString(2, value == null ? "" : value);
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -142,22 +204,31 @@ public class GameStateRepository {
         if (connection == null || s == null)
             return;
 
-        String sql = "INSERT OR REPLACE INTO " + TABLE_USER_PLANT_STATE + " (" +
-                "plant_id, unlocked, total_pomodori, today_pomodori, dead," +
-                " first_use_date, last_pomodoro_date, streak_days, max_streak_days" +
-                ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, s.getPlant().getId());
-            ps.setInt(2, s.isUnlocked() ? 1 : 0);
-            ps.setInt(3, s.getTotalPomodori());
-            ps.setInt(4, s.getTodayPomodori());
-            ps.setInt(5, s.isDead() ? 1 : 0);
-            ps.setString(6, formatDate(s.getFirstUseDate()));
-            ps.setString(7, formatDate(s.getLastPomodoroDate()));
-            ps.setInt(8, s.getStreakDays());
-            ps.setInt(9, s.getMaxStreakDays());
-            ps.executeUpdate();
+        try {
+            SAVE_PLANT_STATE.update(connection, ps -> {
+                ps.setString(1, s.getPlant().getId());
+                ps.setInt(2, s.isUnlocked() ? 1 : 0);
+                ps.setInt(3, s.getTotalPomodori());
+                ps.setInt(4, s.getTodayPomodori());
+                ps.setInt(5, s.isDead() ? 1 : 0);
+                ps.setString(6, formatDate(s.getFirstUseDate()));
+                ps.setString(7, formatDate(s.getLastPomodoroDate()));
+                ps.setInt(8, s.getStreakDays());
+                ps.setInt(9, s.getMaxStreakDays());
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void saveActivityCalendar(String scope, byte[] bitmap) {
+        if (connection == null || scope == null || bitmap == null)
+            return;
+        try {
+            SAVE_CALENDAR.update(connection, ps -> {
+                ps.setString(1, scope);
+                ps.setBytes(2, bitmap);
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -1,74 +1,213 @@
 package com.application.canopy.db;
 
 import com.application.canopy.model.PlantActivity;
+import com.application.canopy.model.PlantStat;
 
 import java.sql.*;
 import java.time.LocalDate;
+import java.time.Year;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class PlantActivityRepository {
 
+    /**
+     * Avvisato a ogni modifica della tabella, da chiunque arrivi (timer, calendario, reset):
+     * serve a chi tiene dati derivati in cache (es. la heatmap dell'anno).
+     * Chiamato sul thread che ha fatto la modifica, dopo che è andata a buon fine.
+     */
+    public interface ActivityListener {
+        // id: id della riga appena inserita (crescente, mai riusato: AUTOINCREMENT).
+        // startMinute: minuto del giorno in cui è iniziata l'attività, UNKNOWN_START se non noto
+        void onActivityAdded(long id, LocalDate date, String plantName, int minutes, int startMinute);
+
+        void onActivitiesCleared();
+    }
+
+    /**
+     * Una riga letta in streaming da forEachActivityUpTo, già in forma primitiva:
+     * niente LocalDate né PlantActivity per riga.
+     */
+    @FunctionalInterface
+    public interface ActivityRowHandler {
+        void accept(long epochDay, String plantName, int minutes, int startMinute);
+    }
+
+    // minuti aggiunti a mano dal calendario: si sa il giorno, non l'ora
+    public static final int UNKNOWN_START = -1;
+
+    // istruzioni con i loro tempi (QueryStats), eseguite sempre tramite il loro Query
+    private static final QueryStats.Query INSERT = QueryStats.query(
+            "INSERT INTO plant_activity (date, plant_name, minutes, start_minute) VALUES (?, ?, ?, ?)");
+    private static final QueryStats.Query DELETE_ALL = QueryStats.query("DELETE FROM plant_activity");
+    private static final QueryStats.Query MAX_ID = QueryStats.query(
+            "SELECT COALESCE(MAX(id), 0) FROM plant_activity");
+    // Usa l'indice su date (idx_plant_activity_date): SQLite legge solo l'indice, mai la tabella
+    private static final QueryStats.Query MINUTES_PER_DAY = QueryStats.query("""
+            SELECT date, SUM(minutes) AS total
+            FROM plant_activity
+            WHERE date BETWEEN ? AND ?
+            GROUP BY date
+            """);
+    private static final QueryStats.Query MINUTES_PER_PLANT = QueryStats.query("""
+            SELECT plant_name, SUM(minutes) AS total
+            FROM plant_activity
+            WHERE date BETWEEN ? AND ?
+            GROUP BY plant_name
+            ORDER BY total DESC
+            """);
+    // Ordine di inserimento, quasi sempre già per data: niente ORDER BY, che passando
+    // dall'indice costa una lettura della tabella per riga (2-3 volte più lento).
+    // Il giorno arriva già come epoch day calcolato da SQLite, senza parsing lato Java.
+    // Il limite sull'id è un intervallo sulla chiave della tabella, non cambia il piano
+    private static final QueryStats.Query ALL_ROWS = QueryStats.query("""
+            SELECT CAST(julianday(date) - 2440587.5 AS INTEGER) AS epoch_day,
+                   plant_name, minutes, start_minute
+            FROM plant_activity
+            WHERE id <= ?
+            """);
+    // Solo ORDER BY date: lo dà già l'indice, SQLite non deve ordinare (né tenere) niente in memoria
+    private static final QueryStats.Query ROWS_BETWEEN = QueryStats.query("""
+            SELECT CAST(julianday(date) - 2440587.5 AS INTEGER) AS epoch_day,
+                   plant_name, minutes, start_minute
+            FROM plant_activity
+            WHERE date BETWEEN ? AND ?
+            ORDER BY date
+            """);
+    private static final QueryStats.Query COUNT_BETWEEN = QueryStats.query(
+            "SELECT COUNT(*) FROM plant_activity WHERE date BETWEEN ? AND ?");
+    private static final QueryStats.Query ACTIVITIES_BETWEEN = QueryStats.query("""
+            SELECT date, plant_name, minutes
+            FROM plant_activity
+            WHERE date BETWEEN ? AND ?
+            """);
+    private static final QueryStats.Query ACTIVITIES_FOR_DATE = QueryStats.query(
+            "SELECT plant_name, minutes FROM plant_activity WHERE date = ?");
+
     private final Connection connection;
+    private final List<ActivityListener> listeners = new CopyOnWriteArrayList<>();
 
     public PlantActivityRepository(Connection connection) {
         this.connection = connection;
     }
 
+    public void addActivityListener(ActivityListener listener) {
+        if (listener != null)
+            listeners.add(listener);
+    }
+
+    public void removeActivityListener(ActivityListener listener) {
+        listeners.remove(listener);
+    }
+
     public void addActivity(LocalDate date, String plantName, int minutes) throws SQLException {
-        String sql = "INSERT INTO plant_activity (date, plant_name, minutes) VALUES (?, ?, ?)";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        addActivity(date, plantName, minutes, UNKNOWN_START);
+    }
+
+    // startMinute: 0..1439 (minuto del giorno) oppure UNKNOWN_START
+    public void addActivity(LocalDate date, String plantName, int minutes, int startMinute) throws SQLException {
+        long id = INSERT.insert(connection, ps -> {
             ps.setString(1, date.toString());
             ps.setString(2, plantName);
             ps.setInt(3, minutes);
-            ps.executeUpdate();
+            if (startMinute >= 0)
+                ps.setInt(4, startMinute);
+            else
+                ps.setNull(4, Types.INTEGER);
+        });
+        for (ActivityListener l : listeners) {
+            l.onActivityAdded(id, date, plantName, minutes, startMinute);
         }
     }
 
     public void deleteAll() throws SQLException {
-        String sql = "DELETE FROM plant_activity";
-        try (Statement st = connection.createStatement()) {
-            st.executeUpdate(sql);
+        DELETE_ALL.update(connection, QueryStats.NO_PARAMS);
+        for (ActivityListener l : listeners) {
+            l.onActivitiesCleared();
         }
     }
 
-    // Getter di tutte le attività tra due date (estremi inclusi)
-    public List<PlantActivity> getActivitiesBetween(LocalDate from, LocalDate to) throws SQLException {
-        String sql = """
-                SELECT date, plant_name, minutes
-                FROM plant_activity
-                WHERE date BETWEEN ? AND ?
-                """;
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+    // Minuti totali per giorno dell'anno (indice 0 = 1 gennaio), con una sola query raggruppata
+    public int[] getMinutesPerDay(int year) throws SQLException {
+        int[] minutes = new int[Year.of(year).length()];
+        MINUTES_PER_DAY.forEachRow(connection, ps -> {
+            ps.setString(1, LocalDate.of(year, 1, 1).toString());
+            ps.setString(2, LocalDate.of(year, 12, 31).toString());
+        }, rs -> {
+            int dayOfYear = LocalDate.parse(rs.getString("date")).getDayOfYear();
+            minutes[dayOfYear - 1] = rs.getInt("total");
+        });
+        return minutes;
+    }
+
+    // Minuti per pianta tra due date (estremi inclusi), pianta con più minuti per prima
+    public List<PlantStat> getMinutesPerPlant(LocalDate from, LocalDate to) throws SQLException {
+        List<PlantStat> list = new ArrayList<>();
+        MINUTES_PER_PLANT.forEachRow(connection, between(from, to),
+                rs -> list.add(new PlantStat(rs.getString("plant_name"), rs.getInt("total"))));
+        return list;
+    }
+
+    // Id dell'ultima attività inserita (0 se la tabella è vuota)
+    public long maxActivityId() throws SQLException {
+        long[] id = new long[1];
+        MAX_ID.forEachRow(connection, QueryStats.NO_PARAMS, rs -> id[0] = rs.getLong(1));
+        return id[0];
+    }
+
+    // Tutte le attività con id <= maxId, una riga per volta dal cursore (memoria costante)
+    public void forEachActivityUpTo(long maxId, ActivityRowHandler handler) throws SQLException {
+        ALL_ROWS.forEachRow(connection, ps -> ps.setLong(1, maxId), rs -> readRow(rs, handler));
+    }
+
+    // Attività tra due date (estremi inclusi) in ordine di data, una riga per volta (per i report)
+    public void forEachActivityBetween(LocalDate from, LocalDate to, ActivityRowHandler handler) throws SQLException {
+        ROWS_BETWEEN.forEachRow(connection, between(from, to), rs -> readRow(rs, handler));
+    }
+
+    // Numero di attività tra due date (estremi inclusi), contate sull'indice
+    public int countActivitiesBetween(LocalDate from, LocalDate to) throws SQLException {
+        int[] count = new int[1];
+        COUNT_BETWEEN.forEachRow(connection, between(from, to), rs -> count[0] = rs.getInt(1));
+        return count[0];
+    }
+
+    private static void readRow(ResultSet rs, ActivityRowHandler handler) throws SQLException {
+        int start = rs.getInt("start_minute");
+        if (rs.wasNull())
+            start = UNKNOWN_START;
+        handler.accept(rs.getLong("epoch_day"), rs.getString("plant_name"), rs.getInt("minutes"), start);
+    }
+
+    // parametri "date BETWEEN ? AND ?"
+    private static QueryStats.Binder between(LocalDate from, LocalDate to) {
+        return ps -> {
             ps.setString(1, from.toString());
             ps.setString(2, to.toString());
-            try (ResultSet rs = ps.executeQuery()) {
-                List<PlantActivity> list = new ArrayList<>();
-                while (rs.next()) {
-                    LocalDate d = LocalDate.parse(rs.getString("date"));
-                    String name = rs.getString("plant_name");
-                    int min = rs.getInt("minutes");
-                    list.add(new PlantActivity(d, name, min));
-                }
-                return list;
-            }
-        }
+        };
+    }
+
+    // Getter di tutte le attività tra due date (estremi inclusi)
+    public List<PlantActivity> getActivitiesBetween(LocalDate from, LocalDate to) throws SQLException {
+        List<PlantActivity> list = new ArrayList<>();
+        ACTIVITIES_BETWEEN.forEachRow(connection, between(from, to), rs -> {
+            LocalDate d = LocalDate.parse(rs.getString("date"));
+            String name = rs.getString("plant_name");
+            int min = rs.getInt("minutes");
+            list.add(new PlantActivity(d, name, min));
+        });
+        return list;
     }
 
     // Getter di tutte le attività di un singolo giorno
     public List<PlantActivity> getActivitiesForDate(LocalDate date) throws SQLException {
-        String sql = "SELECT plant_name, minutes FROM plant_activity WHERE date = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, date.toString());
-            try (ResultSet rs = ps.executeQuery()) {
-                List<PlantActivity> list = new ArrayList<>();
-                while (rs.next()) {
-                    String name = rs.getString("plant_name");
-                    int min = rs.getInt("minutes");
-                    list.add(new PlantActivity(date, name, min));
-                }
-                return list;
-            }
-        }
+        List<PlantActivity> list = new ArrayList<>();
+        ACTIVITIES_FOR_DATE.forEachRow(connection, ps -> ps.setString(1, date.toString()), rs -> {
+            String name = rs.getString("plant_name");
+            int min = rs.getInt("minutes");
+            list.add(new PlantActivity(date, name, min));
+        });
+        return list;
     }
 }
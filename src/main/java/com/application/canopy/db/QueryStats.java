@@ -0,0 +1,322 @@
+package com.application.canopy.db;
+
+import com.application.canopy.util.Metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Statistiche per istruzione SQL (esecuzione + lettura di tutte le righe):
+ * esecuzioni, tempo totale e massimo, righe, query lente ed errori.
+ *
+ * Ogni istruzione ha il suo Query, creato una volta sola (campo static final del
+ * repository) ed eseguito con forEachRow / update / insert, che misurano tutto in un
+ * punto solo: SQL normalizzato e voce della tabella sono già risolti, registrare
+ * un'esecuzione costa due System.nanoTime e qualche LongAdder.
+ * Restano fuori solo le istruzioni dello schema (CREATE / ALTER all'avvio).
+ *
+ * Oltre alla tabella per SQL (vista diagnostica nelle impostazioni), ogni esecuzione
+ * finisce in un istogramma di util.Metrics per operazione e tabella
+ * (es. db.select.plant_activity), esportato con le altre metriche.
+ * Oltre la soglia -Dcanopy.slowQueryMs (default 50 ms) la query finisce nel log delle
+ * query lente (console e data/slow-queries.log) con il suo EXPLAIN QUERY PLAN, calcolato
+ * una volta per istruzione; il log lo scrive un thread a parte.
+ */
+public final class QueryStats {
+
+    // righe chieste al driver per volta nelle letture in streaming
+    private static final int FETCH_SIZE = 1000;
+    private static final long SLOW_QUERY_NANOS = Long.getLong("canopy.slowQueryMs", 50) * 1_000_000L;
+    private static final Path SLOW_LOG = Paths.get(System.getProperty("user.dir"), "data", "slow-queries.log");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TABLE = Pattern.compile(
+            "(?i)\\b(?:from|into|update|table(?:\\s+if\\s+not\\s+exists)?)\\s+([a-z_][a-z0-9_]*)");
+
+    private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    // un solo thread daemon: le righe del log restano in ordine e non tengono aperta la JVM
+    private static final ExecutorService SLOW_LOG_WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "canopy-slow-query-log");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final Metrics.Counter SLOW = Metrics.counter("db.slow_queries");
+    private static final Metrics.Counter ERRORS = Metrics.counter("db.errors");
+
+    private QueryStats() {
+    }
+
+    private static final class Entry {
+        final String sql;
+        final Metrics.Histogram histogram;
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder rows = new LongAdder();
+        final LongAdder slow = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        // piano di esecuzione, calcolato alla prima esecuzione lenta
+        volatile String plan;
+
+        Entry(String sql) {
+            this.sql = sql;
+            this.histogram = Metrics.histogram(metricName(sql));
+        }
+
+        void record(long nanos, long rows, boolean slow, boolean error) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            histogram.recordNanos(nanos);
+            if (rows > 0)
+                this.rows.add(rows);
+            if (slow) {
+                this.slow.increment();
+                SLOW.increment();
+            }
+            if (error) {
+                errors.increment();
+                ERRORS.increment();
+            }
+        }
+
+        // EXPLAIN QUERY PLAN con gli stessi parametri, sulla connessione della query
+        // (stesso thread: la connessione SQLite non si usa da due thread insieme)
+        String plan(Connection connection, String originalSql, Binder binder) {
+            String p = plan;
+            if (p != null)
+                return p;
+            StringBuilder sb = new StringBuilder();
+            String verb = sql.toUpperCase(Locale.ROOT);
+            if (!(verb.startsWith("SELECT") || verb.startsWith("WITH") || verb.startsWith("INSERT")
+                    || verb.startsWith("UPDATE") || verb.startsWith("DELETE"))) {
+                sb.append("    piano non disponibile per questa istruzione").append(System.lineSeparator());
+            } else {
+                try (PreparedStatement ps = connection.prepareStatement("EXPLAIN QUERY PLAN " + originalSql)) {
+                    binder.bind(ps);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            sb.append("    piano: ").append(rs.getString("detail")).append(System.lineSeparator());
+                        }
+                    }
+                    if (sb.isEmpty()) // es. INSERT ... VALUES: nessuna tabella da leggere
+                        sb.append("    piano: nessuna lettura").append(System.lineSeparator());
+                } catch (SQLException e) {
+                    sb.append("    piano non disponibile: ").append(e.getMessage()).append(System.lineSeparator());
+                }
+            }
+            plan = p = sb.toString();
+            return p;
+        }
+
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            rows.reset();
+            slow.reset();
+            errors.reset();
+        }
+    }
+
+    // Riga della vista diagnostica
+    public record Snapshot(String sql, long count, long totalNanos, long maxNanos, long rows, long slow,
+            long errors) {
+
+        public double avgMillis() {
+            return count == 0 ? 0 : totalNanos / 1_000_000.0 / count;
+        }
+
+        public double maxMillis() {
+            return maxNanos / 1_000_000.0;
+        }
+
+        public double totalMillis() {
+            return totalNanos / 1_000_000.0;
+        }
+    }
+
+    // Lega i parametri dell'istruzione (setString, setInt, ...)
+    @FunctionalInterface
+    public interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    // Una riga del risultato: il cursore è già posizionato, niente rs.next() qui
+    @FunctionalInterface
+    public interface RowHandler {
+        void row(ResultSet rs) throws SQLException;
+    }
+
+    // istruzione senza parametri
+    public static final Binder NO_PARAMS = ps -> {
+    };
+
+    /**
+     * Un'istruzione di un repository, che la esegue e ne misura i tempi: prepara lo
+     * statement, lega i parametri, esegue, legge le righe e registra esecuzione o errore.
+     * Nessun repository misura a mano: ogni istruzione passa da qui.
+     */
+    public static final class Query {
+        private final String sql;
+        private final Entry entry;
+
+        private Query(String sql, Entry entry) {
+            this.sql = sql;
+            this.entry = entry;
+        }
+
+        // SQL originale
+        public String sql() {
+            return sql;
+        }
+
+        // SELECT: handler chiamato una volta per riga, ritorna le righe lette
+        public long forEachRow(Connection connection, Binder binder, RowHandler handler) throws SQLException {
+            long start = System.nanoTime();
+            long rows = 0;
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                binder.bind(ps);
+                ps.setFetchSize(FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        handler.row(rs);
+                        rows++;
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                fail(start);
+                throw e;
+            }
+            finish(connection, binder, start, rows);
+            return rows;
+        }
+
+        // INSERT / UPDATE / DELETE: ritorna le righe modificate
+        public int update(Connection connection, Binder binder) throws SQLException {
+            long start = System.nanoTime();
+            int rows;
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                binder.bind(ps);
+                rows = ps.executeUpdate();
+            } catch (SQLException | RuntimeException e) {
+                fail(start);
+                throw e;
+            }
+            finish(connection, binder, start, rows);
+            return rows;
+        }
+
+        // INSERT su tabella con id AUTOINCREMENT: ritorna l'id generato (0 se non c'è)
+        public long insert(Connection connection, Binder binder) throws SQLException {
+            long start = System.nanoTime();
+            int rows;
+            long id;
+            try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                binder.bind(ps);
+                rows = ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    id = keys.next() ? keys.getLong(1) : 0;
+                }
+            } catch (SQLException | RuntimeException e) {
+                fail(start);
+                throw e;
+            }
+            finish(connection, binder, start, rows);
+            return id;
+        }
+
+        private void finish(Connection connection, Binder binder, long startNanos, long rows) {
+            long nanos = System.nanoTime() - startNanos;
+            boolean slow = nanos > SLOW_QUERY_NANOS;
+            entry.record(nanos, rows, slow, false);
+            if (slow)
+                logSlowQuery(entry, entry.plan(connection, sql, binder), nanos, rows);
+        }
+
+        private void fail(long startNanos) {
+            entry.record(System.nanoTime() - startNanos, 0, false, true);
+        }
+    }
+
+    static Query query(String sql) {
+        return new Query(sql, ENTRIES.computeIfAbsent(normalize(sql), Entry::new));
+    }
+
+    // Istruzioni in ordine di tempo totale (le più costose in cima)
+    public static List<Snapshot> snapshot() {
+        List<Snapshot> list = new ArrayList<>();
+        for (Entry e : ENTRIES.values()) {
+            if (e.count.sum() == 0)
+                continue; // istruzione mai eseguita (o azzerata)
+            list.add(new Snapshot(e.sql, e.count.sum(), e.totalNanos.sum(), e.maxNanos.get(),
+                    e.rows.sum(), e.slow.sum(), e.errors.sum()));
+        }
+        list.sort(Comparator.comparingLong(Snapshot::totalNanos).reversed());
+        return list;
+    }
+
+    // Azzera i contatori: le voci restano, i Query dei repository le tengono in mano
+    public static void reset() {
+        ENTRIES.values().forEach(Entry::reset);
+    }
+
+    // Console e file, scritti dal thread del log: chi ha eseguito la query
+    // (spesso il thread FX) non aspetta il disco
+    private static void logSlowQuery(Entry entry, String plan, long nanos, long rows) {
+        LocalDateTime when = LocalDateTime.now();
+        SLOW_LOG_WRITER.execute(() -> {
+            String text = String.format(Locale.ROOT, "[DatabaseManager] Query lenta: %.1f ms, %d righe%n    %s%n%s",
+                    nanos / 1_000_000.0, rows, entry.sql, plan);
+            System.err.print(text);
+            try {
+                Files.createDirectories(SLOW_LOG.getParent());
+                Files.writeString(SLOW_LOG, when.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + " " + text,
+                        StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                System.err.println("[DatabaseManager] Impossibile scrivere " + SLOW_LOG + ": " + e.getMessage());
+            }
+        });
+    }
+
+    // stessa query scritta su più righe o con spazi diversi -> stessa riga
+    static String normalize(String sql) {
+        if (sql == null)
+            return "(sconosciuta)";
+        return WHITESPACE.matcher(sql.strip()).replaceAll(" ");
+    }
+
+    // "SELECT ... FROM plant_activity ..." -> db.select.plant_activity
+    private static String metricName(String sql) {
+        int space = sql.indexOf(' ');
+        String verb = (space > 0 ? sql.substring(0, space) : sql).toLowerCase(Locale.ROOT);
+        Matcher m = TABLE.matcher(sql);
+        String table = m.find() ? m.group(1).toLowerCase(Locale.ROOT) : "other";
+        return "db." + verb + "." + table;
+    }
+}
@@ -8,6 +8,28 @@ import java.util.List;
 
 public class TimerDatabase {
 
+    // istruzioni con i loro tempi (QueryStats)
+    private static final QueryStats.Query FIND_ALL = QueryStats.query("""
+            SELECT id, name, focus_minutes, short_break, long_break, repeat_before_long
+            FROM timer_preset
+            ORDER BY id
+            """);
+    private static final QueryStats.Query INSERT = QueryStats.query("""
+            INSERT INTO timer_preset
+                (name, focus_minutes, short_break, long_break, repeat_before_long)
+            VALUES (?,?,?,?,?)
+            """);
+    private static final QueryStats.Query UPDATE = QueryStats.query("""
+            UPDATE timer_preset
+            SET name = ?,
+                focus_minutes = ?,
+                short_break = ?,
+                long_break = ?,
+                repeat_before_long = ?
+            WHERE id = ?
+            """);
+    private static final QueryStats.Query DELETE = QueryStats.query("DELETE FROM timer_preset WHERE id = ?");
+
     public static void createTableIfNeeded(Connection conn) throws SQLException {
         // schema completo con repeat_before_long
         String sql = """
@@ -28,81 +50,46 @@ public class TimerDatabase {
     }
 
     public static List<TimerPreset> findAll(Connection conn) throws SQLException {
-        String sql = """
-            SELECT id, name, focus_minutes, short_break, long_break, repeat_before_long
-            FROM timer_preset
-            ORDER BY id
-            """;
         List<TimerPreset> list = new ArrayList<>();
-
-        try (Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-
-            while (rs.next()) {
-                list.add(new TimerPreset(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getInt("focus_minutes"),
-                        rs.getInt("short_break"),
-                        rs.getInt("long_break"),
-                        rs.getInt("repeat_before_long")
-                ));
-            }
-        }
+        FIND_ALL.forEachRow(conn, QueryStats.NO_PARAMS, rs -> list.add(new TimerPreset(
+                rs.getInt("id"),
+                rs.getString("name"),
+                rs.getInt("focus_minutes"),
+                rs.getInt("short_break"),
+                rs.getInt("long_break"),
+                rs.getInt("repeat_before_long")
+        )));
         return list;
     }
 
     public static void insert(Connection conn, TimerPreset p) throws SQLException {
-        String sql = """
-            INSERT INTO timer_preset
-                (name, focus_minutes, short_break, long_break, repeat_before_long)
-            VALUES (?,?,?,?,?)
-            """;
-        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        long id = INSERT.insert(conn, ps -> {
             ps.setString(1, p.getName());
             ps.setInt(2, p.getFocusMinutes());
             ps.setInt(3, p.getShortBreakMinutes());
             ps.setInt(4, p.getLongBreakMinutes());
             ps.setInt(5, p.getRepeatBeforeLongBreak());
-            ps.executeUpdate();
-
-            try (ResultSet keys = ps.getGeneratedKeys()) {
-                if (keys.next()) {
-                    p.setId(keys.getInt(1));
-                }
-            }
+        });
+        if (id > 0) {
+            p.setId((int) id);
         }
     }
 
     public static void update(Connection conn, TimerPreset p) throws SQLException {
         if (p.getId() <= 0) throw new IllegalArgumentException("Preset senza id");
-        String sql = """
-            UPDATE timer_preset
-            SET name = ?,
-                focus_minutes = ?,
-                short_break = ?,
-                long_break = ?,
-                repeat_before_long = ?
-            WHERE id = ?
-            """;
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        UPDATE.update(conn, ps -> {
             ps.setString(1, p.getName());
             ps.setInt(2, p.getFocusMinutes());
             ps.setInt(3, p.getShortBreakMinutes());
             ps.setInt(4, p.getLongBreakMinutes());
             ps.setInt(5, p.getRepeatBeforeLongBreak());
             ps.setInt(6, p.getId());
-            ps.executeUpdate();
-        }
+        });
     }
 
     public static void delete(Connection conn, TimerPreset p) throws SQLException {
         if (p.getId() <= 0) return;
-        String sql = "DELETE FROM timer_preset WHERE id = ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, p.getId());
-            ps.executeUpdate();
-        }
+        DELETE.update(conn, ps -> ps.setInt(1, p.getId()));
     }
 
     public static void ensureDefaults(Connection conn) throws SQLException {
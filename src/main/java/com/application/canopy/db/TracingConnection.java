@@ -0,0 +1,136 @@
+package com.application.canopy.db;
+
+import com.application.canopy.util.FlightRecording;
+import jdk.jfr.FlightRecorder;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Proxy della connessione SQLite per la diagnostica: attivo solo se richiesto
+ * (vedi isEnabled), altrimenti DatabaseManager usa la connessione diretta.
+ *
+ * Per ogni esecuzione (execute*, non la lettura delle righe: il ResultSet non passa
+ * dal proxy, così i getter restano chiamate dirette) emette un evento JFR
+ * (FlightRecording.Query) con SQL e righe modificate. Tempi, query lente e piani di
+ * esecuzione stanno in QueryStats, che li misura con o senza proxy.
+ * Gli errori non vengono loggati qui: l'eccezione arriva al repository, che la logga.
+ */
+final class TracingConnection {
+
+    private TracingConnection() {
+    }
+
+    // Proxy solo con la diagnostica chiesta esplicitamente o con JFR in registrazione:
+    // -Dcanopy.sqlTrace=true, -Dcanopy.diagnostics=log|overlay, registrazione continua
+    // attivata dalle impostazioni (vale dal prossimo avvio) o JVM avviata con JFR
+    static boolean isEnabled() {
+        String diagnostics = System.getProperty("canopy.diagnostics", "");
+        return Boolean.getBoolean("canopy.sqlTrace")
+                || "log".equals(diagnostics) || "overlay".equals(diagnostics)
+                || FlightRecording.isContinuousEnabled()
+                || FlightRecorder.isInitialized();
+    }
+
+    static Connection wrap(Connection connection) {
+        return proxy(Connection.class, connection, new ConnectionHandler(connection));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(TracingConnection.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    // i metodi del proxy rilanciano l'eccezione originale, non quella della riflessione
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // ----------------- CONNESSIONE -----------------
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = call(target, method, args);
+
+            switch (method.getName()) {
+                case "createStatement":
+                    return proxy(Statement.class, (Statement) result,
+                            new StatementHandler((Statement) result, null));
+                case "prepareStatement":
+                    return proxy(PreparedStatement.class, (PreparedStatement) result,
+                            new StatementHandler((Statement) result, (String) args[0]));
+                default:
+                    return result;
+            }
+        }
+    }
+
+    // ----------------- STATEMENT -----------------
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        // SQL normalizzato del PreparedStatement (null per gli Statement semplici),
+        // calcolato una volta sola: lo statement viene eseguito più volte
+        private final String preparedKey;
+
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedKey = preparedSql != null ? QueryStats.normalize(preparedSql) : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute"))
+                return call(target, method, args);
+
+            // Statement semplice: SQL passato all'execute
+            FlightRecording.Query event = new FlightRecording.Query();
+            event.sql = args != null && args.length > 0 && args[0] instanceof String s ? s : preparedKey;
+            event.begin();
+            Object result;
+            try {
+                result = call(target, method, args);
+            } catch (Throwable t) {
+                event.rows = -1;
+                event.commit();
+                throw t;
+            }
+
+            // per le SELECT conta solo l'esecuzione (prima riga): la lettura completa
+            // la misura QueryStats
+            event.rows = updatedRows(result);
+            event.commit();
+            return result;
+        }
+
+        private static long updatedRows(Object result) {
+            if (result instanceof Integer n)
+                return n;
+            if (result instanceof Long n)
+                return n;
+            if (result instanceof int[] batch) {
+                long sum = 0;
+                for (int n : batch)
+                    sum += Math.max(0, n);
+                return sum;
+            }
+            return 0; // ResultSet o boolean di execute()
+        }
+    }
+}
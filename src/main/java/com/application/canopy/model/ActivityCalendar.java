@@ -0,0 +1,277 @@
+package com.application.canopy.model;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Bitmap compressa dei giorni attivi (epoch day), in stile Roaring:
+ * i giorni sono divisi in blocchi da 1024 e vengono allocati solo i blocchi
+ * che contengono almeno un giorno attivo. Ogni blocco è un array di 16 long,
+ * un bit per giorno.
+ *
+ * Permette di rispondere a streak, serie più lunga e conteggio dei giorni
+ * attivi in un intervallo con poche operazioni sui bit, anche su anni di storico.
+ */
+public final class ActivityCalendar {
+
+    private static final int CHUNK_BITS = 10; // 1024 giorni per blocco
+    private static final int WORDS_PER_CHUNK = (1 << CHUNK_BITS) / 64;
+    private static final byte FORMAT_VERSION = 1;
+
+    // indici dei blocchi (ordinati) e relativi bit
+    private int[] keys = new int[0];
+    private long[][] chunks = new long[0][];
+
+    public ActivityCalendar() {
+    }
+
+    // Scrittura
+
+    // segna il giorno come attivo, ritorna true se prima non lo era
+    public boolean add(LocalDate date) {
+        return add(date.toEpochDay());
+    }
+
+    public boolean add(long epochDay) {
+        long[] chunk = chunkFor(epochDay, true);
+        int bit = (int) Math.floorMod(epochDay, 64L);
+        int word = (int) Math.floorMod(Math.floorDiv(epochDay, 64L), (long) WORDS_PER_CHUNK);
+        long mask = 1L << bit;
+        if ((chunk[word] & mask) != 0)
+            return false;
+        chunk[word] |= mask;
+        return true;
+    }
+
+    // unisce i giorni di un altro calendario in questo
+    public void addAll(ActivityCalendar other) {
+        if (other == null)
+            return;
+        for (int i = 0; i < other.keys.length; i++) {
+            long[] src = other.chunks[i];
+            long[] dst = chunkFor((long) other.keys[i] << CHUNK_BITS, true);
+            for (int w = 0; w < WORDS_PER_CHUNK; w++) {
+                dst[w] |= src[w];
+            }
+        }
+    }
+
+    public void clear() {
+        keys = new int[0];
+        chunks = new long[0][];
+    }
+
+    // Interrogazioni
+
+    public boolean contains(LocalDate date) {
+        return contains(date.toEpochDay());
+    }
+
+    public boolean contains(long epochDay) {
+        return (word(Math.floorDiv(epochDay, 64L)) & (1L << Math.floorMod(epochDay, 64L))) != 0;
+    }
+
+    public boolean isEmpty() {
+        for (long[] chunk : chunks) {
+            for (long w : chunk) {
+                if (w != 0)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    // numero totale di giorni attivi
+    public int cardinality() {
+        int count = 0;
+        for (long[] chunk : chunks) {
+            for (long w : chunk) {
+                count += Long.bitCount(w);
+            }
+        }
+        return count;
+    }
+
+    // numero di giorni attivi tra due date (estremi inclusi)
+    public int countBetween(LocalDate from, LocalDate to) {
+        long start = from.toEpochDay();
+        long end = to.toEpochDay();
+        if (end < start)
+            return 0;
+
+        int count = 0;
+        long firstWord = Math.floorDiv(start, 64L);
+        long lastWord = Math.floorDiv(end, 64L);
+        for (long wi = firstWord; wi <= lastWord; wi++) {
+            count += Long.bitCount(maskedWord(wi, firstWord, lastWord, start, end));
+        }
+        return count;
+    }
+
+    // serie più lunga di giorni consecutivi attivi tra due date (estremi inclusi)
+    public int longestRunBetween(LocalDate from, LocalDate to) {
+        long start = from.toEpochDay();
+        long end = to.toEpochDay();
+        if (end < start)
+            return 0;
+
+        int best = 0;
+        int current = 0; // serie ancora aperta alla fine della parola precedente
+        long firstWord = Math.floorDiv(start, 64L);
+        long lastWord = Math.floorDiv(end, 64L);
+        for (long wi = firstWord; wi <= lastWord; wi++) {
+            long w = maskedWord(wi, firstWord, lastWord, start, end);
+            if (w == -1L) {
+                current += 64;
+                continue;
+            }
+            // i bit bassi sono i giorni più vecchi: continuano la serie precedente
+            current += Long.numberOfTrailingZeros(~w);
+            best = Math.max(best, current);
+            best = Math.max(best, longestRunInWord(w));
+            // i bit alti aprono una serie che prosegue nella parola successiva
+            current = Long.numberOfLeadingZeros(~w);
+        }
+        return Math.max(best, current);
+    }
+
+    // serie più lunga di sempre
+    public int longestRun() {
+        if (keys.length == 0)
+            return 0;
+        LocalDate from = LocalDate.ofEpochDay((long) keys[0] << CHUNK_BITS);
+        LocalDate to = LocalDate.ofEpochDay((((long) keys[keys.length - 1] + 1) << CHUNK_BITS) - 1);
+        return longestRunBetween(from, to);
+    }
+
+    // giorni consecutivi attivi che terminano in "date" (0 se quel giorno non è attivo)
+    public int streakEndingAt(LocalDate date) {
+        long day = date.toEpochDay();
+        long wi = Math.floorDiv(day, 64L);
+        int bit = (int) Math.floorMod(day, 64L);
+
+        // porta il bit del giorno in posizione 63 e conta gli 1 consecutivi verso il basso
+        long w = word(wi) << (63 - bit);
+        int streak = Long.numberOfLeadingZeros(~w);
+        if (streak < bit + 1)
+            return streak;
+
+        // la serie copre tutta la parola: continua con le precedenti
+        while (true) {
+            long prev = word(--wi);
+            if (prev == -1L) {
+                streak += 64;
+                continue;
+            }
+            return streak + Long.numberOfLeadingZeros(~prev);
+        }
+    }
+
+    // Persistenza
+
+    public byte[] toBytes() {
+        int used = 0;
+        for (long[] chunk : chunks) {
+            if (!isZero(chunk))
+                used++;
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(1 + 4 + used * (4 + WORDS_PER_CHUNK * 8));
+        buf.put(FORMAT_VERSION);
+        buf.putInt(used);
+        for (int i = 0; i < keys.length; i++) {
+            if (isZero(chunks[i]))
+                continue;
+            buf.putInt(keys[i]);
+            for (long w : chunks[i]) {
+                buf.putLong(w);
+            }
+        }
+        return buf.array();
+    }
+
+    public static ActivityCalendar fromBytes(byte[] data) {
+        ActivityCalendar cal = new ActivityCalendar();
+        if (data == null || data.length < 5)
+            return cal;
+
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        if (buf.get() != FORMAT_VERSION)
+            return cal;
+
+        int count = buf.getInt();
+        if (count < 0 || buf.remaining() < count * (4 + WORDS_PER_CHUNK * 8))
+            return cal;
+
+        cal.keys = new int[count];
+        cal.chunks = new long[count][];
+        for (int i = 0; i < count; i++) {
+            cal.keys[i] = buf.getInt();
+            long[] chunk = new long[WORDS_PER_CHUNK];
+            for (int w = 0; w < WORDS_PER_CHUNK; w++) {
+                chunk[w] = buf.getLong();
+            }
+            cal.chunks[i] = chunk;
+        }
+        return cal;
+    }
+
+    // Metodi di supporto
+
+    // parola wi con i bit fuori da [start, end] azzerati
+    private long maskedWord(long wi, long firstWord, long lastWord, long start, long end) {
+        long w = word(wi);
+        if (wi == firstWord)
+            w &= -1L << Math.floorMod(start, 64L);
+        if (wi == lastWord)
+            w &= -1L >>> (63 - Math.floorMod(end, 64L));
+        return w;
+    }
+
+    private long word(long wordIndex) {
+        long[] chunk = chunkFor(wordIndex * 64L, false);
+        if (chunk == null)
+            return 0L;
+        return chunk[(int) Math.floorMod(wordIndex, (long) WORDS_PER_CHUNK)];
+    }
+
+    private long[] chunkFor(long epochDay, boolean create) {
+        int key = (int) (epochDay >> CHUNK_BITS);
+        int idx = Arrays.binarySearch(keys, key);
+        if (idx >= 0)
+            return chunks[idx];
+        if (!create)
+            return null;
+
+        int ins = -idx - 1;
+        int[] newKeys = new int[keys.length + 1];
+        long[][] newChunks = new long[chunks.length + 1][];
+        System.arraycopy(keys, 0, newKeys, 0, ins);
+        System.arraycopy(chunks, 0, newChunks, 0, ins);
+        newKeys[ins] = key;
+        newChunks[ins] = new long[WORDS_PER_CHUNK];
+        System.arraycopy(keys, ins, newKeys, ins + 1, keys.length - ins);
+        System.arraycopy(chunks, ins, newChunks, ins + 1, chunks.length - ins);
+        keys = newKeys;
+        chunks = newChunks;
+        return newChunks[ins];
+    }
+
+    private static int longestRunInWord(long w) {
+        int run = 0;
+        while (w != 0) {
+            w &= w << 1;
+            run++;
+        }
+        return run;
+    }
+
+    private static boolean isZero(long[] chunk) {
+        for (long w : chunk) {
+            if (w != 0)
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,102 @@
+package com.application.canopy.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistiche delle attività su un periodo: totali per pianta, per giorno della
+ * settimana e per ora, più i contatori per le medie.
+ *
+ * Le sessioni sono solo i pomodori (attività con orario di inizio): i minuti aggiunti a
+ * mano dal calendario contano nei totali ma non nella media a sessione.
+ *
+ * Periodi disgiunti si sommano con merge (le statistiche di un anno sono la somma
+ * di quelle dei suoi mesi). Immutabile: gli array restituiti non vanno modificati.
+ */
+public record ActivityStats(Map<String, Integer> minutesPerPlant,
+                            int[] minutesPerWeekday,
+                            int[] minutesPerHour,
+                            int totalMinutes,
+                            int sessions,
+                            int sessionMinutes,
+                            int activeDays) {
+
+    public static final ActivityStats EMPTY =
+            new ActivityStats(Collections.emptyMap(), new int[7], new int[24], 0, 0, 0, 0);
+
+    public ActivityStats merge(ActivityStats other) {
+        // nessun giorno attivo = nessuna attività (anche solo minuti aggiunti a mano)
+        if (other.activeDays == 0)
+            return this;
+        if (activeDays == 0)
+            return other;
+
+        Map<String, Integer> plants = new HashMap<>(minutesPerPlant);
+        other.minutesPerPlant.forEach((name, minutes) -> plants.merge(name, minutes, Integer::sum));
+
+        int[] weekdays = minutesPerWeekday.clone();
+        for (int i = 0; i < weekdays.length; i++)
+            weekdays[i] += other.minutesPerWeekday[i];
+
+        int[] hours = minutesPerHour.clone();
+        for (int i = 0; i < hours.length; i++)
+            hours[i] += other.minutesPerHour[i];
+
+        return new ActivityStats(Collections.unmodifiableMap(plants), weekdays, hours,
+                totalMinutes + other.totalMinutes, sessions + other.sessions,
+                sessionMinutes + other.sessionMinutes, activeDays + other.activeDays);
+    }
+
+    // Una riga per pianta, pianta con più minuti per prima
+    public List<PlantStat> perPlant() {
+        List<PlantStat> stats = new ArrayList<>(minutesPerPlant.size());
+        minutesPerPlant.forEach((name, minutes) -> stats.add(new PlantStat(name, minutes)));
+        stats.sort((a, b) -> Integer.compare(b.minutes, a.minutes));
+        return stats;
+    }
+
+    public double averagePerActiveDay() {
+        return activeDays == 0 ? 0 : (double) totalMinutes / activeDays;
+    }
+
+    // Solo i minuti dei pomodori: quelli aggiunti a mano non sono sessioni
+    public double averagePerSession() {
+        return sessions == 0 ? 0 : (double) sessionMinutes / sessions;
+    }
+
+    // 0 = lunedì; -1 se non c'è nessuna attività
+    public int busiestWeekday() {
+        return indexOfMax(minutesPerWeekday);
+    }
+
+    // 0..23; -1 se nessuna attività ha un orario
+    public int busiestHour() {
+        return indexOfMax(minutesPerHour);
+    }
+
+    // Divide i minuti di un'attività tra le fasce orarie che tocca (startMinute < 0 = senza orario)
+    public static void addToHours(int[] hours, int startMinute, int minutes) {
+        if (startMinute < 0)
+            return;
+        int start = startMinute;
+        while (minutes > 0) {
+            int inHour = Math.min(minutes, 60 - start % 60);
+            hours[start / 60] += inHour;
+            minutes -= inHour;
+            // dopo mezzanotte si riparte da 00:00
+            start = (start + inHour) % (24 * 60);
+        }
+    }
+
+    private static int indexOfMax(int[] values) {
+        int best = -1;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] > 0 && (best < 0 || values[i] > values[best]))
+                best = i;
+        }
+        return best;
+    }
+}
@@ -1,10 +1,17 @@
 package com.application.canopy.model;
 
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.Parent;
 import javafx.scene.text.Font;
 
-import java.util.Objects;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.prefs.Preferences;
 
 public final class FontManager {
@@ -55,24 +62,18 @@ public final class FontManager {
 
     private static AppFont currentFont;
 
+    // font già caricati (o in caricamento): ogni file .ttf viene letto una volta sola
+    private static final Map<AppFont, CompletableFuture<Font>> LOADED = new EnumMap<>(AppFont.class);
+
+    // un solo thread in background per i font scelti o visti in anteprima dopo l'avvio
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "canopy-font-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
     // inizializzazione
     public static void initFonts() {
-        // initFonts prova a caricare i file .ttf dalla cartella risorse.
-        // questo è necessario perché javafx non vede i font custom se non vengono
-        // caricati prima manualmente
-        for (AppFont f : AppFont.values()) {
-            Font font = Font.loadFont(
-                    Objects.requireNonNull(
-                            FontManager.class.getResourceAsStream(f.getResourcePath()),
-                            "Font non trovato: " + f.getResourcePath()),
-                    14);
-            if (font != null) {
-                System.out.println("Caricato font: " + f.getDisplayName() + " -> " + font.getName());
-            } else {
-                System.err.println("Impossibile caricare font: " + f.getResourcePath());
-            }
-        }
-
         // recupera l'ultimo font scelto dall'utente (o usa quello di default)
         String saved = PREFS.get(PREF_KEY, AppFont.ATKINSON.name());
         try {
@@ -82,6 +83,63 @@ public final class FontManager {
         }
 
         System.out.println("Font corrente da prefs: " + currentFont.name());
+
+        // all'avvio si caricano solo il font in uso e quello di base.css (siamo già fuori
+        // dal thread FX); gli altri vengono caricati quando l'utente li sceglie o li vede
+        // nella tendina
+        loadNow(currentFont);
+        // .root in base.css usa Atkinson: popup, tooltip e dialog senza la classe del font
+        // ricadono su quello, quindi deve esistere anche se l'utente ne ha scelto un altro
+        loadNow(AppFont.ATKINSON);
+    }
+
+    // carica subito sul thread corrente, se non è già caricato
+    private static void loadNow(AppFont font) {
+        CompletableFuture<Font> future;
+        synchronized (LOADED) {
+            future = LOADED.computeIfAbsent(font, f -> new CompletableFuture<>());
+        }
+        if (!future.isDone()) {
+            future.complete(loadFont(font));
+        }
+    }
+
+    // Carica il font in background (una volta sola) e restituisce il Font a 14px,
+    // oppure null se il file non si è potuto caricare
+    public static CompletableFuture<Font> loadAsync(AppFont font) {
+        synchronized (LOADED) {
+            return LOADED.computeIfAbsent(font,
+                    f -> CompletableFuture.supplyAsync(() -> loadFont(f), LOADER));
+        }
+    }
+
+    public static boolean isLoaded(AppFont font) {
+        synchronized (LOADED) {
+            CompletableFuture<Font> future = LOADED.get(font);
+            return future != null && future.isDone();
+        }
+    }
+
+    // prova a caricare il file .ttf dalla cartella risorse.
+    // questo è necessario perché javafx non vede i font custom se non vengono
+    // caricati prima manualmente
+    private static Font loadFont(AppFont f) {
+        try (InputStream in = FontManager.class.getResourceAsStream(f.getResourcePath())) {
+            if (in == null) {
+                System.err.println("[FontManager] Font non trovato: " + f.getResourcePath());
+                return null;
+            }
+            Font font = Font.loadFont(in, 14);
+            if (font != null) {
+                System.out.println("Caricato font: " + f.getDisplayName() + " -> " + font.getName());
+            } else {
+                System.err.println("Impossibile caricare font: " + f.getResourcePath());
+            }
+            return font;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
     }
 
     public static AppFont getCurrentFont() {
@@ -122,15 +180,27 @@ public final class FontManager {
         System.out.println("Applicato font alla scena via CSS class: " + font.getDisplayName());
     }
 
-    // cambia il font corrente, salva la preferenza e aggiorna subito la scena
+    // cambia il font corrente, salva la preferenza e aggiorna la scena
+    // appena il font è caricato (subito, se lo era già)
     public static void setFont(AppFont font, Scene scene) {
         if (font == null)
             return;
         currentFont = font;
         PREFS.put(PREF_KEY, font.name());
 
-        if (scene != null) {
+        if (scene == null)
+            return;
+
+        CompletableFuture<Font> future = loadAsync(font);
+        if (future.isDone()) {
             applyCurrentFont(scene);
+        } else {
+            // la classe CSS va messa dopo il caricamento, altrimenti JavaFX
+            // risolve la famiglia prima che esista e resta sul font di sistema
+            future.thenRunAsync(() -> {
+                if (currentFont == font)
+                    applyCurrentFont(scene);
+            }, Platform::runLater);
         }
     }
 }
@@ -2,6 +2,7 @@ package com.application.canopy.model;
 
 import com.application.canopy.db.DatabaseManager;
 import com.application.canopy.db.GameStateRepository;
+import com.application.canopy.util.FlightRecording;
 
 import java.sql.*;
 import java.time.LocalDate;
@@ -28,6 +29,9 @@ public class GameState {
     private int globalBestStreak;
     private LocalDate lastGlobalPomodoroDate;
 
+    // bitmap dei giorni con almeno un pomodoro completato (per streak e intervalli)
+    private final ActivityCalendar globalActiveDays = new ActivityCalendar();
+
     private final Map<LocalDate, Integer> completedPomodoriPerDay = new HashMap<>();
     private int maxPomodoriInSingleDay;
 
@@ -50,8 +54,15 @@ public class GameState {
 
     // Collegamento al DB
 
+    private static final String SCOPE_GLOBAL = "global";
+    // chiave in game_state: le bitmap sono già state ricostruite dallo storico
+    private static final String KEY_CALENDARS_MIGRATED = "activityCalendarsMigrated";
+
     private GameStateRepository repository;
 
+    // indice di ricerca sul catalogo, costruito una volta all'avvio
+    private final PlantSearchIndex searchIndex = new PlantSearchIndex();
+
     private GameState() {
         // 1) Inizializza le plantStates dal catalogo
         for (Plant p : Plant.samplePlants()) {
@@ -61,6 +72,7 @@ public class GameState {
                 s.setUnlocked(false);
             }
             plantStates.put(p.getId(), s);
+            searchIndex.add(p);
         }
 
         // 2) Collega DB e Repository
@@ -106,6 +118,49 @@ public class GameState {
         for (Map.Entry<String, UserPlantState> entry : loadedPlants.entrySet()) {
             plantStates.put(entry.getKey(), entry.getValue());
         }
+
+        // Carica le bitmap dei giorni attivi
+        // (la ricostruzione si fa una volta sola: chi ha bitmap salvate prima del marker è già migrato)
+        Map<String, byte[]> calendars = repository.loadActivityCalendars();
+        boolean migrated = parseBool(globalData.get(KEY_CALENDARS_MIGRATED)) || !calendars.isEmpty();
+        if (!migrated) {
+            rebuildActivityCalendars();
+        } else {
+            globalActiveDays.addAll(ActivityCalendar.fromBytes(calendars.get(SCOPE_GLOBAL)));
+            for (UserPlantState s : plantStates.values()) {
+                s.getActiveDays().addAll(ActivityCalendar.fromBytes(calendars.get(plantScope(s.getPlant()))));
+            }
+        }
+    }
+
+    // Prima esecuzione con le bitmap: le ricostruisce dallo storico del calendario.
+    // plant_activity è l'unico storico per giorno, ma contiene anche i minuti aggiunti a mano
+    // e nelle righe vecchie non si distinguono dai pomodori: qui contano anche quelli,
+    // da qui in poi (onPomodoroCompleted) solo i pomodori completati
+    private void rebuildActivityCalendars() {
+        Map<String, List<LocalDate>> daysByPlant = repository.loadActivityDaysByPlantName();
+
+        // il globale prende tutti i giorni, anche di piante senza stato (nome cambiato, pianta rimossa)
+        for (List<LocalDate> days : daysByPlant.values()) {
+            for (LocalDate d : days) {
+                globalActiveDays.add(d);
+            }
+        }
+        for (UserPlantState s : plantStates.values()) {
+            List<LocalDate> days = daysByPlant.get(s.getPlant().getName());
+            if (days == null)
+                continue;
+            for (LocalDate d : days) {
+                s.getActiveDays().add(d);
+            }
+        }
+
+        repository.saveActivityCalendar(SCOPE_GLOBAL, globalActiveDays.toBytes());
+        for (UserPlantState s : plantStates.values()) {
+            repository.saveActivityCalendar(plantScope(s.getPlant()), s.getActiveDays().toBytes());
+        }
+        // anche se lo storico è vuoto: al prossimo avvio niente SELECT DISTINCT
+        repository.saveGlobalKey(KEY_CALENDARS_MIGRATED, boolToString(true));
     }
 
     // Metodi vari utili (check, unlock, lock, getter delle piante, migliore pianta,
@@ -159,6 +214,10 @@ public class GameState {
         return plantStates.values().stream().map(UserPlantState::getPlant).toList();
     }
 
+    public PlantSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
     public UserPlantState getStateFor(Plant plant) {
         return plantStates.get(plant.getId());
     }
@@ -169,6 +228,11 @@ public class GameState {
         if (state == null)
             return;
 
+        FlightRecording.Pomodoro event = new FlightRecording.Pomodoro();
+        event.plantId = plant.getId();
+        event.outcome = "completed";
+        event.begin();
+
         state.onPomodoroCompleted();
 
         LocalDate today = LocalDate.now();
@@ -187,7 +251,11 @@ public class GameState {
         if (repository != null) {
             saveGlobalState();
             repository.saveUserPlantState(state);
+            repository.saveActivityCalendar(SCOPE_GLOBAL, globalActiveDays.toBytes());
+            repository.saveActivityCalendar(plantScope(plant), state.getActiveDays().toBytes());
         }
+
+        event.commit();
     }
 
     private void updateBestPlantOfDay(LocalDate today, Plant plant, UserPlantState state) {
@@ -221,6 +289,7 @@ public class GameState {
             }
         }
         lastGlobalPomodoroDate = today;
+        globalActiveDays.add(today);
 
         if (globalStreak > globalBestStreak) {
             globalBestStreak = globalStreak;
@@ -256,10 +325,17 @@ public class GameState {
     public void onPomodoroAborted(Plant plant) {
         UserPlantState state = plantStates.get(plant.getId());
         if (state != null) {
+            FlightRecording.Pomodoro event = new FlightRecording.Pomodoro();
+            event.plantId = plant.getId();
+            event.outcome = "aborted";
+            event.begin();
+
             state.onPomodoroAborted();
             if (repository != null) {
                 repository.saveUserPlantState(state);
             }
+
+            event.commit();
         }
     }
 
@@ -272,6 +348,7 @@ public class GameState {
 
         completedPomodoriPerDay.clear();
         maxPomodoriInSingleDay = 0;
+        globalActiveDays.clear();
 
         hasMorningPomodoroBefore9 = false;
         hasNightPomodoroAfter22 = false;
@@ -292,6 +369,8 @@ public class GameState {
             repository.clearAllData();
             // salva stato globale azzerato (che ora è vuoto/zero)
             saveGlobalState();
+            // calendari vuoti ma validi: non vanno ricostruiti al prossimo avvio
+            repository.saveGlobalKey(KEY_CALENDARS_MIGRATED, boolToString(true));
             // salva stati per pianta azzerati
             for (UserPlantState s : plantStates.values()) {
                 repository.saveUserPlantState(s);
@@ -359,6 +438,16 @@ public class GameState {
         return globalBestStreak;
     }
 
+    // giorni attivi globali: streak, serie più lunga e conteggi su intervalli
+    public ActivityCalendar getGlobalActiveDays() {
+        return globalActiveDays;
+    }
+
+    public ActivityCalendar getActiveDaysFor(Plant plant) {
+        UserPlantState s = plantStates.get(plant.getId());
+        return s != null ? s.getActiveDays() : null;
+    }
+
     public LocalDate getLastGlobalPomodoroDate() {
         return lastGlobalPomodoroDate;
     }
@@ -420,4 +509,8 @@ public class GameState {
     private String boolToString(boolean b) {
         return b ? "1" : "0";
     }
+
+    private static String plantScope(Plant plant) {
+        return "plant:" + plant.getId();
+    }
 }
@@ -1,9 +1,26 @@
 package com.application.canopy.model;
 
+import javafx.collections.ListChangeListener;
+import javafx.geometry.Point2D;
 import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.control.ScrollPane;
 import javafx.scene.layout.Pane;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Collections;
+
 // Classe che estende Pane per creare un layout personalizzato in stile Pinterest
+//
+// Le altezze dei figli vengono messe in cache e ricalcolate solo quando il figlio
+// chiede un nuovo layout o cambia la larghezza delle colonne.
+// Se il pannello sta dentro uno ScrollPane, vengono mostrati e posizionati solo
+// i figli che intersecano l'area visibile (più un margine): gli altri restano
+// nella lista dei figli ma invisibili, così lo scroll non ricalcola nulla.
 public class MasonryPane extends Pane {
 
     // spazio orizzontale tra le colonne
@@ -11,11 +28,39 @@ public class MasonryPane extends Pane {
     // spazio verticale tra le colonne
     private double vgap = 24;
 
+    // altezza preferita di ogni figlio alla larghezza colonna "cachedColWidth"
+    private final Map<Node, Double> heightCache = new IdentityHashMap<>();
+    private double cachedColWidth = -1;
+
+    // ultimo impacchettamento calcolato: figli e rispettivi rettangoli (x, y, w, h)
+    private final List<Node> placed = new ArrayList<>();
+    private double[] rects = new double[0];
+    private boolean[] laidOut = new boolean[0];
+
+    // figli nascosti da noi perché fuori dall'area visibile
+    private final Set<Node> culled = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private ScrollPane scrollPane;
+
     // Costruttore
     public MasonryPane() {
         // Aggiunge un listener alla larghezza del pannello
         // Quando la larghezza cambia, ricalcola il layout (requestLayout)
         widthProperty().addListener((obs, oldV, newV) -> requestLayout());
+
+        // figli aggiunti o rimossi: la loro altezza va (ri)calcolata
+        getChildren().addListener((ListChangeListener<Node>) c -> {
+            while (c.next()) {
+                for (Node removed : c.getRemoved()) {
+                    heightCache.remove(removed);
+                    if (culled.remove(removed))
+                        removed.setVisible(true);
+                }
+            }
+        });
+
+        // cerca lo ScrollPane contenitore quando il pannello entra in scena
+        sceneProperty().addListener((obs, oldScene, newScene) -> attachToScrollPane());
     }
 
     public double getHgap() {
@@ -50,6 +95,16 @@ public class MasonryPane extends Pane {
         return 1;
     }
 
+    // L'altezza del pannello è quella della colonna più alta: così lo ScrollPane
+    // padre scorre correttamente senza che il layout imposti min/pref a mano
+    @Override
+    protected double computePrefHeight(double width) {
+        double w = width > 0 ? width : getWidth();
+        if (w <= 0)
+            w = computePrefWidth(-1);
+        return snappedTopInset() + pack(w, null) + snappedBottomInset();
+    }
+
     @Override
     protected void layoutChildren() {
         // Ottiene la larghezza attuale del pannello
@@ -57,9 +112,21 @@ public class MasonryPane extends Pane {
 
         // Se la larghezza è 0 o non ci sono figli, non fa nulla ed esce
         if (width <= 0 || getChildren().isEmpty()) {
+            placed.clear();
             return;
         }
 
+        // Calcola le posizioni di tutti i figli (usando le altezze in cache)
+        pack(width, placed);
+        laidOut = new boolean[placed.size()];
+
+        // Posiziona solo i figli visibili nello ScrollPane
+        applyViewport();
+    }
+
+    // Impacchetta i figli nelle colonne; se "out" non è null salva figli e rettangoli.
+    // Ritorna l'altezza totale.
+    private double pack(double width, List<Node> out) {
         // Calcola quante colonne usare in base alla larghezza corrente
         int cols = computeColumns(width);
 
@@ -75,6 +142,18 @@ public class MasonryPane extends Pane {
         // Calcola la larghezza di ogni singola colonna sottraendo i gap alla larghezza totale
         double colWidth = (width - totalGap) / cols;
 
+        // Se la larghezza delle colonne è cambiata tutte le altezze in cache non valgono più
+        if (colWidth != cachedColWidth) {
+            heightCache.clear();
+            cachedColWidth = colWidth;
+        }
+
+        if (out != null) {
+            out.clear();
+            if (rects.length < getChildren().size() * 4)
+                rects = new double[getChildren().size() * 4];
+        }
+
         // Crea un array per tenere traccia dell'altezza corrente di ogni colonna
         double[] colHeights = new double[cols];
 
@@ -99,14 +178,20 @@ public class MasonryPane extends Pane {
             // Calcola la posizione X: indice colonna * (larghezza colonna + spazio)
             double x = colIndex * (colWidth + hg);
 
-            // Calcola l'altezza preferita del figlio dato che la larghezza è fissata
-            double prefH = child.prefHeight(colWidth);
+            // Altezza preferita del figlio alla larghezza della colonna (dalla cache se valida)
+            double prefH = childHeight(child, colWidth);
 
             // La posizione Y è l'altezza attuale della colonna scelta
             double y = colHeights[colIndex];
 
-            // Posiziona e ridimensiona il figlio alle coordinate calcolate
-            child.resizeRelocate(x, y, colWidth, prefH);
+            if (out != null) {
+                int i = out.size() * 4;
+                rects[i] = x;
+                rects[i + 1] = y;
+                rects[i + 2] = colWidth;
+                rects[i + 3] = prefH;
+                out.add(child);
+            }
 
             // Aggiorna l'altezza della colonna scelta aggiungendo l'altezza del figlio + il gap verticale
             // La prossima card in questa colonna andrà sotto questa
@@ -119,10 +204,103 @@ public class MasonryPane extends Pane {
             if (h > maxHeight)
                 maxHeight = h;
         }
+        return maxHeight;
+    }
+
+    // Un figlio che ha chiesto un nuovo layout potrebbe aver cambiato altezza: va ricalcolato
+    private double childHeight(Node child, double colWidth) {
+        Double cached = heightCache.get(child);
+        boolean dirty = child instanceof Parent p && p.isNeedsLayout();
+        if (cached != null && !dirty)
+            return cached;
+        double h = child.prefHeight(colWidth);
+        heightCache.put(child, h);
+        return h;
+    }
+
+    // ----------------- AREA VISIBILE -----------------
+
+    private void attachToScrollPane() {
+        ScrollPane found = findScrollPane();
+        if (found == scrollPane)
+            return;
+
+        scrollPane = found;
+        if (found != null) {
+            // allo scroll cambia solo la visibilità, le posizioni restano quelle calcolate
+            found.vvalueProperty().addListener((obs, o, n) -> {
+                if (scrollPane == found)
+                    applyViewport();
+            });
+            found.viewportBoundsProperty().addListener((obs, o, n) -> {
+                if (scrollPane == found)
+                    applyViewport();
+            });
+        }
+    }
+
+    private ScrollPane findScrollPane() {
+        for (Parent p = getParent(); p != null; p = p.getParent()) {
+            if (p instanceof ScrollPane sp)
+                return sp;
+        }
+        return null;
+    }
+
+    // Mostra e posiziona i figli che intersecano l'area visibile, nasconde gli altri
+    private void applyViewport() {
+        double top = Double.NEGATIVE_INFINITY;
+        double bottom = Double.POSITIVE_INFINITY;
+
+        double[] range = visibleRange();
+        if (range != null) {
+            top = range[0];
+            bottom = range[1];
+        }
+
+        for (int i = 0; i < placed.size(); i++) {
+            Node child = placed.get(i);
+            double y = rects[i * 4 + 1];
+            double h = rects[i * 4 + 3];
+            boolean inView = y + h >= top && y <= bottom;
+
+            if (inView) {
+                if (!laidOut[i]) {
+                    child.resizeRelocate(rects[i * 4], y, rects[i * 4 + 2], h);
+                    laidOut[i] = true;
+                }
+                if (culled.remove(child))
+                    child.setVisible(true);
+            } else if (child.isVisible()) {
+                child.setVisible(false);
+                culled.add(child);
+            }
+        }
+    }
+
+    // Intervallo verticale visibile nelle coordinate del pannello (con mezzo viewport
+    // di margine sopra e sotto), oppure null se non siamo in uno ScrollPane
+    private double[] visibleRange() {
+        if (scrollPane == null || scrollPane.getContent() == null || getScene() == null)
+            return null;
+
+        Node content = scrollPane.getContent();
+        double viewportH = scrollPane.getViewportBounds().getHeight();
+        if (viewportH <= 0)
+            return null;
+
+        double contentH = content.getLayoutBounds().getHeight();
+        double vRange = scrollPane.getVmax() - scrollPane.getVmin();
+        double frac = vRange > 0 ? (scrollPane.getVvalue() - scrollPane.getVmin()) / vRange : 0;
+        double offset = Math.max(0, contentH - viewportH) * frac;
+
+        // posizione del pannello dentro il contenuto dello ScrollPane (non dipende dallo scroll)
+        Point2D origin = content.sceneToLocal(localToScene(0, 0));
+        if (origin == null)
+            return null;
 
-        // Imposta l'altezza del pannello MasonryPane per contenere tutte le colonne
-        // Questo permette allo scrollpane padre di scorrere correttamente
-        setMinHeight(maxHeight);
-        setPrefHeight(maxHeight);
+        double margin = viewportH / 2;
+        double top = offset - origin.getY() - margin;
+        return new double[] { top, top + viewportH + 2 * margin };
     }
 }
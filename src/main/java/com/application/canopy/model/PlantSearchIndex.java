@@ -0,0 +1,149 @@
+package com.application.canopy.model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Indice invertito per la ricerca full-text nel catalogo delle piante.
+ *
+ * Ogni parola di nome, descrizione, curiosità e consigli di cura viene normalizzata
+ * (minuscolo, senza accenti) e associata alle piante che la contengono, con un peso
+ * che dipende dal campo. Le parole stanno in una TreeMap, così la ricerca per prefisso
+ * ("lav" -> "lavanda") è una subMap invece di una scansione di tutto il testo.
+ *
+ * I risultati sono ordinati per punteggio; a parità, nell'ordine del catalogo.
+ */
+public final class PlantSearchIndex {
+
+    // peso di ogni campo nel punteggio
+    private static final float WEIGHT_NAME = 10f;
+    private static final float WEIGHT_CURIOSITY = 3f;
+    private static final float WEIGHT_DESCRIPTION = 2f;
+    private static final float WEIGHT_CARE = 1f;
+
+    // una parola trovata solo come prefisso vale meno di una parola intera
+    private static final float PREFIX_FACTOR = 0.5f;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // parola -> (id pianta -> peso)
+    private final TreeMap<String, Map<String, Float>> postings = new TreeMap<>();
+
+    // piante indicizzate, nell'ordine del catalogo
+    private final Map<String, Plant> plants = new LinkedHashMap<>();
+    private final Map<String, Integer> order = new HashMap<>();
+
+    // Costruzione
+
+    public void add(Plant plant) {
+        if (plant == null || plants.containsKey(plant.getId()))
+            return;
+
+        plants.put(plant.getId(), plant);
+        order.put(plant.getId(), order.size());
+
+        indexField(plant.getId(), plant.getName(), WEIGHT_NAME);
+        indexField(plant.getId(), plant.getCuriosity(), WEIGHT_CURIOSITY);
+        indexField(plant.getId(), plant.getDescription(), WEIGHT_DESCRIPTION);
+        indexField(plant.getId(), plant.getCareTips(), WEIGHT_CARE);
+    }
+
+    public void addAll(Iterable<Plant> catalog) {
+        for (Plant p : catalog) {
+            add(p);
+        }
+    }
+
+    private void indexField(String plantId, String text, float weight) {
+        for (String token : tokenize(text)) {
+            postings.computeIfAbsent(token, k -> new HashMap<>())
+                    .merge(plantId, weight, Float::sum);
+        }
+    }
+
+    // Ricerca
+
+    // Piante che contengono tutte le parole della query (anche come prefisso),
+    // dalla più rilevante. Query vuota -> tutto il catalogo.
+    public List<Plant> search(String query) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty())
+            return new ArrayList<>(plants.values());
+
+        Map<String, Float> scores = null;
+        for (String term : terms) {
+            Map<String, Float> termScores = scoreTerm(term);
+
+            // AND tra le parole: restano solo le piante trovate da tutte
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                Map<String, Float> next = new HashMap<>();
+                for (Map.Entry<String, Float> e : scores.entrySet()) {
+                    Float s = termScores.get(e.getKey());
+                    if (s != null)
+                        next.put(e.getKey(), e.getValue() + s);
+                }
+                scores = next;
+            }
+            if (scores.isEmpty())
+                return new ArrayList<>();
+        }
+
+        Map<String, Float> finalScores = scores;
+        List<String> ids = new ArrayList<>(finalScores.keySet());
+        ids.sort((a, b) -> {
+            int byScore = Float.compare(finalScores.get(b), finalScores.get(a));
+            return byScore != 0 ? byScore : Integer.compare(order.get(a), order.get(b));
+        });
+
+        List<Plant> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            result.add(plants.get(id));
+        }
+        return result;
+    }
+
+    // Punteggio di ogni pianta per una parola: parola esatta a peso pieno,
+    // parole più lunghe che iniziano con essa a peso ridotto
+    private Map<String, Float> scoreTerm(String term) {
+        Map<String, Float> result = new HashMap<>();
+        NavigableMap<String, Map<String, Float>> matches = postings.subMap(term, true, term + Character.MAX_VALUE, false);
+        for (Map.Entry<String, Map<String, Float>> e : matches.entrySet()) {
+            float factor = e.getKey().equals(term) ? 1f : PREFIX_FACTOR;
+            for (Map.Entry<String, Float> posting : e.getValue().entrySet()) {
+                // per ogni pianta conta la parola migliore, non la somma di tutti i prefissi
+                result.merge(posting.getKey(), posting.getValue() * factor, Math::max);
+            }
+        }
+        return result;
+    }
+
+    // Normalizzazione
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank())
+            return tokens;
+        for (String t : SEPARATORS.split(normalize(text))) {
+            if (!t.isEmpty())
+                tokens.add(t);
+        }
+        return tokens;
+    }
+
+    // minuscolo e senza accenti: "Perché" -> "perche"
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,12 @@
+package com.application.canopy.model;
+
+// Oggetto statistica pianta: minuti dedicati a una pianta (in un giorno, un mese...)
+public class PlantStat {
+    public final String name;
+    public final int minutes;
+
+    public PlantStat(String name, int minutes) {
+        this.name = name;
+        this.minutes = minutes;
+    }
+}
@@ -1,8 +1,10 @@
 package com.application.canopy.model;
 
+import javafx.collections.ObservableList;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 
+import java.net.URL;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.prefs.Preferences;
@@ -38,6 +40,20 @@ public class ThemeManager {
     // listener che ascoltano i cambi di tema
     private static final List<Consumer<String>> listeners = new ArrayList<>();
 
+    // fogli di stile: ogni tema e ogni filtro è un foglio separato (.bss compilato in build)
+    private static final String BASE_STYLESHEET = "/css/base";
+    private static final String THEMES_DIR = "/css/themes/";
+    private static final String CVD_DIR = "/css/cvd/";
+
+    // classe fissa della root a cui si applicano le variabili del tema
+    private static final String THEME_ROOT_CLASS = "theme-root";
+
+    // percorso -> URL già risolto (niente lookup delle risorse a ogni cambio tema o popup)
+    private static final Map<String, String> STYLESHEET_URLS = new HashMap<>();
+
+    // durata dell'ultimo cambio tema (CSS + layout), in ms
+    private static long lastSwitchMillis = -1;
+
     static {
         try {
             // Preferences è una piccola memoria che serve a salvare le impostazioni
@@ -103,45 +119,92 @@ public class ThemeManager {
 
     // Applicazione alla UI
 
-    // Applica le classi CSS corrette alla root della scena
-    // permette al file CSS di cambiare i colori di TUTTI i componenti dentro la
-    // finestra
+    // Applica il tema alla root (della scena, di un dialog o di un popup):
+    // la root ha una classe fissa e tra i suoi fogli di stile c'è quello del tema
+    // corrente (più quello del filtro daltonismo, se attivo).
+    // Cambiare tema sostituisce solo l'URL del foglio, senza toccare le classi.
     public static void applyTheme(Parent root) {
         if (root == null)
             return;
 
-        var styles = root.getStyleClass();
-        // Rimuove tutte le possibili classi di tema precedenti per evitare conflitti
-        styles.removeAll(
-                // temi
-                "theme-dark",
-                "theme-light",
-                "theme-sakura-light", "theme-sakura-dark",
-                "theme-quercia-light", "theme-quercia-dark",
-                "theme-menta-light", "theme-menta-dark",
-                "theme-peperoncino-light", "theme-peperoncino-dark",
-                "theme-lavanda-light", "theme-lavanda-dark",
-                "theme-orchidea-light", "theme-orchidea-dark",
-                // filtri daltonismo
-                "cvd-deuteranopia",
-                "cvd-protanopia",
-                "cvd-tritanopia");
-
-        // Aggiunge la classe del tema corrente per applicare i colori corrispondenti al tema
-        String cssClass = "theme-" + currentThemeId;
-        if (!styles.contains(cssClass)) {
-            styles.add(cssClass);
+        if (!root.getStyleClass().contains(THEME_ROOT_CLASS)) {
+            root.getStyleClass().add(THEME_ROOT_CLASS);
         }
 
-        // Se c'è un filtro daltonismo attivo, aggiunge anche la sua classe
+        List<String> wanted = new ArrayList<>(2);
+        String theme = resolveStylesheet(THEMES_DIR + currentThemeId);
+        if (theme != null)
+            wanted.add(theme);
         if (!"none".equals(currentCvdFilter)) {
-            String cvdClass = "cvd-" + currentCvdFilter;
-            if (!styles.contains(cvdClass)) {
-                styles.add(cvdClass);
-            }
+            String cvd = resolveStylesheet(CVD_DIR + currentCvdFilter);
+            if (cvd != null)
+                wanted.add(cvd);
+        }
+
+        ObservableList<String> sheets = root.getStylesheets();
+        List<String> current = sheets.stream().filter(ThemeManager::isThemeStylesheet).toList();
+        if (current.equals(wanted))
+            return;
+
+        // un solo cambio alla lista -> un solo ricalcolo del CSS
+        List<String> next = new ArrayList<>(sheets.size());
+        for (String url : sheets) {
+            if (!isThemeStylesheet(url))
+                next.add(url);
+        }
+        next.addAll(wanted);
+        sheets.setAll(next);
+    }
+
+    // URL di base.css, risolto una volta sola (per popup e dialog)
+    public static String getBaseStylesheet() {
+        return resolveStylesheet(BASE_STYLESHEET);
+    }
+
+    // durata dell'ultimo cambio tema in ms (-1 se non ancora misurato)
+    public static long getLastSwitchMillis() {
+        return lastSwitchMillis;
+    }
+
+    // .bss se è stato compilato in build, altrimenti il .css
+    private static String resolveStylesheet(String pathWithoutExtension) {
+        synchronized (STYLESHEET_URLS) {
+            return STYLESHEET_URLS.computeIfAbsent(pathWithoutExtension, path -> {
+                URL url = ThemeManager.class.getResource(path + ".bss");
+                if (url == null)
+                    url = ThemeManager.class.getResource(path + ".css");
+                if (url == null) {
+                    System.err.println("[ThemeManager] Foglio di stile non trovato: " + path);
+                    return null;
+                }
+                return url.toExternalForm();
+            });
         }
     }
 
+    private static boolean isThemeStylesheet(String url) {
+        return url.contains(THEMES_DIR) || url.contains(CVD_DIR);
+    }
+
+    // Applica il tema alla scena e misura quanto ci mette (CSS + layout) al pulse successivo
+    private static void applyAndMeasure(Scene scene) {
+        long start = System.nanoTime();
+        String label = currentThemeId + ("none".equals(currentCvdFilter) ? "" : " + " + currentCvdFilter);
+
+        List<String> before = new ArrayList<>(scene.getRoot().getStylesheets());
+        applyTheme(scene.getRoot());
+        if (before.equals(scene.getRoot().getStylesheets()))
+            return; // niente da ridisegnare
+
+        Runnable[] listener = new Runnable[1];
+        listener[0] = () -> {
+            scene.removePostLayoutPulseListener(listener[0]);
+            lastSwitchMillis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("[ThemeManager] Tema " + label + " applicato in " + lastSwitchMillis + " ms");
+        };
+        scene.addPostLayoutPulseListener(listener[0]);
+    }
+
     // setters (cambio tema)
 
     // imposta un tema specifico e aggiorna tutto
@@ -158,7 +221,7 @@ public class ThemeManager {
         saveCurrentTheme(); // salva nelle preferenze utente
 
         if (scene != null) {
-            applyTheme(scene.getRoot());
+            applyAndMeasure(scene);
         }
 
         notifyThemeListeners();
@@ -236,7 +299,7 @@ public class ThemeManager {
         saveCurrentCvdFilter();
 
         if (scene != null) {
-            applyTheme(scene.getRoot());
+            applyAndMeasure(scene);
         }
 
         notifyThemeListeners();
@@ -20,6 +20,7 @@ public class UserPlantState {
     private LocalDate lastPomodoroDate; // ultimo giorno in cui è stato fatto un pomodoro con questa pianta
     private int streakDays; // streak corrente di giorni consecutivi per questa pianta
     private int maxStreakDays; // miglior streak mai raggiunto
+    private final ActivityCalendar activeDays = new ActivityCalendar(); // giorni con almeno un pomodoro
 
     public UserPlantState(Plant plant) {
         this.plant = plant;
@@ -99,6 +100,7 @@ public class UserPlantState {
         }
 
         lastPomodoroDate = today;
+        activeDays.add(today);
         if (streakDays > maxStreakDays) {
             maxStreakDays = streakDays;
         }
@@ -131,6 +133,10 @@ public class UserPlantState {
         return maxStreakDays;
     }
 
+    public ActivityCalendar getActiveDays() {
+        return activeDays;
+    }
+
     // Età in giorni da quando è stato completato il primo pomodoro con questa pianta.
     public int getAgeDays() {
         if (firstUseDate == null)
@@ -142,6 +148,7 @@ public class UserPlantState {
         this.totalPomodori = 0;
         this.todayPomodori = 0;
         this.dead = false;
+        this.activeDays.clear();
     }
 
     // Setters
@@ -0,0 +1,74 @@
+package com.application.canopy.service;
+
+import com.application.canopy.model.PlantActivity;
+import com.application.canopy.model.PlantStat;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregazioni delle attività usate dal calendario: per giorno, per pianta e per mese.
+ * Niente JavaFX né DB, così si possono misurare da sole (benchmark).
+ */
+public final class ActivityAggregator {
+
+    // ordine delle liste: pianta con più minuti per prima
+    private static final Comparator<PlantStat> BY_MINUTES_DESC =
+            Comparator.comparingInt((PlantStat p) -> p.minutes).reversed();
+
+    private ActivityAggregator() {
+    }
+
+    // Aggrega per giorno -> lista (pianta, minuti) ordinata per minuti (desc)
+    public static Map<LocalDate, List<PlantStat>> byDay(List<PlantActivity> activities) {
+        // giorno -> (nome pianta -> minuti)
+        Map<LocalDate, Map<String, Integer>> temp = new HashMap<>();
+        for (PlantActivity a : activities) {
+            temp.computeIfAbsent(a.getDate(), k -> new HashMap<>())
+                    .merge(a.getPlantName(), a.getMinutes(), Integer::sum);
+        }
+
+        Map<LocalDate, List<PlantStat>> result = new HashMap<>(temp.size() * 2);
+        for (Map.Entry<LocalDate, Map<String, Integer>> entry : temp.entrySet()) {
+            result.put(entry.getKey(), toSortedStats(entry.getValue()));
+        }
+        return result;
+    }
+
+    // Somma per pianta di un insieme di attività (es. quelle di un giorno)
+    public static List<PlantStat> byPlant(List<PlantActivity> activities) {
+        Map<String, Integer> agg = new HashMap<>();
+        for (PlantActivity a : activities) {
+            agg.merge(a.getPlantName(), a.getMinutes(), Integer::sum);
+        }
+        return toSortedStats(agg);
+    }
+
+    // Somma per pianta sulle statistiche giornaliere che cadono nel mese:
+    // una riga per pianta, con minuti sommati sul mese
+    public static List<PlantStat> forMonth(Map<LocalDate, List<PlantStat>> dailyStats, YearMonth month) {
+        Map<String, Integer> aggregated = new HashMap<>();
+
+        for (Map.Entry<LocalDate, List<PlantStat>> entry : dailyStats.entrySet()) {
+            if (!YearMonth.from(entry.getKey()).equals(month))
+                continue;
+
+            for (PlantStat ps : entry.getValue()) {
+                aggregated.merge(ps.name, ps.minutes, Integer::sum);
+            }
+        }
+        return toSortedStats(aggregated);
+    }
+
+    private static List<PlantStat> toSortedStats(Map<String, Integer> minutesByPlant) {
+        List<PlantStat> stats = new ArrayList<>(minutesByPlant.size());
+        minutesByPlant.forEach((name, minutes) -> stats.add(new PlantStat(name, minutes)));
+        stats.sort(BY_MINUTES_DESC);
+        return stats;
+    }
+}
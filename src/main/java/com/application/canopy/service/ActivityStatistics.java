@@ -0,0 +1,125 @@
+package com.application.canopy.service;
+
+import com.application.canopy.db.PlantActivityRepository;
+import com.application.canopy.model.ActivityStats;
+import com.application.canopy.util.Metrics;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Statistiche su periodi arbitrari (mese, anno, tutta la storia), calcolate
+ * dall'ActivityStore a partizioni mensili.
+ *
+ * Ogni mese intero viene calcolato una volta e tenuto in cache; un periodo lungo è
+ * la somma (ActivityStats.merge) dei suoi mesi, calcolati in parallelo sul pool
+ * fork/join comune. Un'attività nuova rende "sporco" solo il suo mese, quindi di
+ * solito si ricalcola solo il mese corrente. I pezzi di mese ai bordi del periodo
+ * (es. una settimana) si calcolano al volo, senza cache.
+ */
+public class ActivityStatistics implements PlantActivityRepository.ActivityListener {
+
+    private static final Metrics.Histogram PARTITION_TIME = Metrics.histogram("stats.partition");
+
+    // un mese intero del periodo richiesto, o un pezzo di mese ai bordi
+    private record Partition(YearMonth month, LocalDate from, LocalDate to) {
+        boolean whole() {
+            return from.getDayOfMonth() == 1 && to.equals(month.atEndOfMonth());
+        }
+    }
+
+    private final ActivityStore store;
+    private final Map<YearMonth, ActivityStats> partitions = new ConcurrentHashMap<>();
+
+    // cambia a ogni modifica: un calcolo iniziato prima non finisce in cache.
+    // Letto e scritto solo dentro synchronized (partitions)
+    private long generation;
+
+    // Da creare dopo lo store: i listener sono chiamati in ordine di registrazione,
+    // quindi quando un mese viene invalidato lo store ha già la riga nuova
+    ActivityStatistics(ActivityStore store, PlantActivityRepository repository) {
+        this.store = store;
+        repository.addActivityListener(this);
+        Metrics.gauge("stats.partitions.cached", partitions::size);
+    }
+
+    public ActivityStats forMonth(YearMonth month) {
+        return forRange(month.atDay(1), month.atEndOfMonth());
+    }
+
+    public ActivityStats forYear(int year) {
+        return forRange(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+    }
+
+    // Estremi inclusi
+    public ActivityStats forRange(LocalDate from, LocalDate to) {
+        if (to.isBefore(from))
+            return ActivityStats.EMPTY;
+
+        List<Partition> parts = split(from, to);
+        if (parts.size() == 1)
+            return compute(parts.get(0));
+
+        return parts.parallelStream()
+                .map(this::compute)
+                .reduce(ActivityStats.EMPTY, ActivityStats::merge);
+    }
+
+    private ActivityStats compute(Partition part) {
+        if (!part.whole())
+            return summarize(part);
+
+        ActivityStats cached = partitions.get(part.month());
+        if (cached != null)
+            return cached;
+
+        long startGeneration;
+        synchronized (partitions) {
+            startGeneration = generation;
+        }
+        ActivityStats stats = summarize(part);
+        synchronized (partitions) {
+            if (generation == startGeneration)
+                partitions.put(part.month(), stats);
+        }
+        return stats;
+    }
+
+    private ActivityStats summarize(Partition part) {
+        long start = System.nanoTime();
+        ActivityStats stats = store.summarize(part.from(), part.to());
+        PARTITION_TIME.recordSince(start);
+        return stats;
+    }
+
+    private static List<Partition> split(LocalDate from, LocalDate to) {
+        List<Partition> parts = new ArrayList<>();
+        YearMonth last = YearMonth.from(to);
+        for (YearMonth m = YearMonth.from(from); !m.isAfter(last); m = m.plusMonths(1)) {
+            LocalDate partFrom = m.equals(YearMonth.from(from)) ? from : m.atDay(1);
+            LocalDate partTo = m.equals(last) ? to : m.atEndOfMonth();
+            parts.add(new Partition(m, partFrom, partTo));
+        }
+        return parts;
+    }
+
+    @Override
+    public void onActivityAdded(long id, LocalDate date, String plantName, int minutes, int startMinute) {
+        synchronized (partitions) {
+            generation++;
+            partitions.remove(YearMonth.from(date));
+        }
+    }
+
+    @Override
+    public void onActivitiesCleared() {
+        synchronized (partitions) {
+            generation++;
+            partitions.clear();
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package com.application.canopy.service;
+
+import com.application.canopy.db.PlantActivityRepository;
+import com.application.canopy.model.ActivityStats;
+import com.application.canopy.model.PlantStat;
+import com.application.canopy.util.Metrics;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Tutte le attività in memoria, a colonne: un array primitivo per campo
+ * (giorno, pianta, minuti, minuto di inizio), righe ordinate per giorno.
+ *
+ * Si carica una volta all'avvio leggendo il cursore riga per riga (in colonne a parte,
+ * senza lock), poi resta allineato al DB tramite ActivityListener (append, o reset). Le aggregazioni per
+ * intervallo sono una ricerca binaria sul giorno e un ciclo sugli array:
+ * nessun oggetto per riga, nessuna query.
+ *
+ * Letture concorrenti ammesse (lock in lettura), le scritture arrivano dal listener.
+ */
+public class ActivityStore implements PlantActivityRepository.ActivityListener {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // colonne: la riga i è (epochDay[i], plantIdx[i], minutes[i], startMinute[i])
+    private int[] epochDay = new int[INITIAL_CAPACITY];
+    private int[] plantIdx = new int[INITIAL_CAPACITY];
+    private int[] minutes = new int[INITIAL_CAPACITY];
+    private int[] startMinute = new int[INITIAL_CAPACITY];
+    private int size;
+
+    // id dell'ultima riga letta dal caricamento iniziale: le notifiche con id <= di
+    // questo sono righe già lette dal cursore
+    private long loadedUpTo;
+
+    // notifiche arrivate durante il caricamento (null fuori dal caricamento): si
+    // riapplicano dopo aver installato le colonne lette
+    private record Pending(long id, long day, String plantName, int minutes, int startMinute) {
+    }
+
+    private List<Pending> pending;
+    private boolean clearedDuringLoad;
+
+    // dizionario delle piante: il nome si salva una volta sola, nelle righe c'è l'indice
+    private final List<String> plantNames = new ArrayList<>();
+    private final Map<String, Integer> plantIndex = new HashMap<>();
+
+    ActivityStore() {
+    }
+
+    // Caricamento iniziale. Il listener si registra prima di fissare l'ultimo id, e si
+    // leggono solo le righe fino a quell'id: una riga inserita nel frattempo arriva o dal
+    // cursore o dal listener, mai da tutti e due.
+    // La lettura riempie colonne a parte senza tenere il lock (un addActivity sul thread FX
+    // non aspetta la fine della scansione): il lock serve solo per installarle alla fine
+    void load(PlantActivityRepository repository) throws SQLException {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+            clearedDuringLoad = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        repository.addActivityListener(this);
+
+        ActivityStore scanned = new ActivityStore();
+        long maxId;
+        try {
+            maxId = repository.maxActivityId();
+            repository.forEachActivityUpTo(maxId, scanned::appendUnsorted);
+        } catch (SQLException e) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        scanned.sortByDay();
+
+        lock.writeLock().lock();
+        try {
+            // un reset durante la lettura rende vecchie le righe lette
+            if (!clearedDuringLoad) {
+                epochDay = scanned.epochDay;
+                plantIdx = scanned.plantIdx;
+                minutes = scanned.minutes;
+                startMinute = scanned.startMinute;
+                size = scanned.size;
+                plantNames.addAll(scanned.plantNames);
+                plantIndex.putAll(scanned.plantIndex);
+            }
+            loadedUpTo = maxId;
+            for (Pending p : pending) {
+                if (p.id() > maxId)
+                    appendLocked(p.day(), p.plantName(), p.minutes(), p.startMinute());
+            }
+            pending = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Metrics.gauge("activity_store.rows", this::size);
+        System.out.println("[ActivityStore] " + size + " attività caricate in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---- aggregazioni (estremi inclusi) ----
+
+    public int totalMinutes(LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            int end = upperBound(day(to));
+            int total = 0;
+            for (int i = lowerBound(day(from)); i < end; i++)
+                total += minutes[i];
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Minuti per giorno, indice 0 = from
+    public int[] minutesPerDay(LocalDate from, LocalDate to) {
+        int first = day(from);
+        int[] result = new int[Math.max(0, day(to) - first + 1)];
+        lock.readLock().lock();
+        try {
+            int end = upperBound(day(to));
+            for (int i = lowerBound(first); i < end; i++)
+                result[epochDay[i] - first] += minutes[i];
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // Minuti per pianta, pianta con più minuti per prima (solo piante con minuti > 0)
+    public List<PlantStat> minutesPerPlant(LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            int[] perPlant = new int[plantNames.size()];
+            int end = upperBound(day(to));
+            for (int i = lowerBound(day(from)); i < end; i++)
+                perPlant[plantIdx[i]] += minutes[i];
+
+            List<PlantStat> stats = new ArrayList<>();
+            for (int p = 0; p < perPlant.length; p++) {
+                if (perPlant[p] > 0)
+                    stats.add(new PlantStat(plantNames.get(p), perPlant[p]));
+            }
+            stats.sort((a, b) -> Integer.compare(b.minutes, a.minutes));
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Pianta -> minuti per giorno (indice 0 = from), solo le piante presenti nell'intervallo
+    public Map<String, int[]> minutesPerPlantPerDay(LocalDate from, LocalDate to) {
+        int first = day(from);
+        int days = Math.max(0, day(to) - first + 1);
+        lock.readLock().lock();
+        try {
+            int[][] perPlant = new int[plantNames.size()][];
+            int end = upperBound(day(to));
+            for (int i = lowerBound(first); i < end; i++) {
+                int p = plantIdx[i];
+                if (perPlant[p] == null)
+                    perPlant[p] = new int[days];
+                perPlant[p][epochDay[i] - first] += minutes[i];
+            }
+
+            Map<String, int[]> result = new LinkedHashMap<>();
+            for (int p = 0; p < perPlant.length; p++) {
+                if (perPlant[p] != null)
+                    result.put(plantNames.get(p), perPlant[p]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Minuti per giorno della settimana, indice 0 = lunedì
+    public int[] minutesPerWeekday(LocalDate from, LocalDate to) {
+        int[] result = new int[7];
+        lock.readLock().lock();
+        try {
+            int end = upperBound(day(to));
+            for (int i = lowerBound(day(from)); i < end; i++)
+                result[weekday(epochDay[i])] += minutes[i];
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // Minuti per ora del giorno (24 fasce): un'attività che scavalca l'ora viene
+    // divisa tra le fasce che tocca. Le attività senza orario non contano
+    public int[] minutesPerHour(LocalDate from, LocalDate to) {
+        int[] result = new int[24];
+        lock.readLock().lock();
+        try {
+            int end = upperBound(day(to));
+            for (int i = lowerBound(day(from)); i < end; i++)
+                ActivityStats.addToHours(result, startMinute[i], minutes[i]);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // Tutte le statistiche di un intervallo in un solo passaggio (vedi ActivityStatistics)
+    public ActivityStats summarize(LocalDate from, LocalDate to) {
+        int[] weekdays = new int[7];
+        int[] hours = new int[24];
+        int total = 0;
+        int sessions = 0;
+        int sessionMinutes = 0;
+        int activeDays = 0;
+        Map<String, Integer> perPlantByName = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            int begin = lowerBound(day(from));
+            int end = upperBound(day(to));
+            if (begin >= end)
+                return ActivityStats.EMPTY;
+
+            int[] perPlant = new int[plantNames.size()];
+            int lastDay = Integer.MIN_VALUE;
+            for (int i = begin; i < end; i++) {
+                int d = epochDay[i];
+                int m = minutes[i];
+                // righe ordinate per giorno: un giorno nuovo è un giorno attivo in più
+                if (d != lastDay) {
+                    activeDays++;
+                    lastDay = d;
+                }
+                perPlant[plantIdx[i]] += m;
+                weekdays[weekday(d)] += m;
+                ActivityStats.addToHours(hours, startMinute[i], m);
+                total += m;
+                // una sessione è un pomodoro: le righe senza orario sono minuti aggiunti a mano
+                if (startMinute[i] >= 0) {
+                    sessions++;
+                    sessionMinutes += m;
+                }
+            }
+            for (int p = 0; p < perPlant.length; p++) {
+                if (perPlant[p] > 0)
+                    perPlantByName.put(plantNames.get(p), perPlant[p]);
+            }
+            return new ActivityStats(Collections.unmodifiableMap(perPlantByName), weekdays, hours,
+                    total, sessions, sessionMinutes, activeDays);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---- listener del repository ----
+
+    @Override
+    public void onActivityAdded(long id, LocalDate date, String plantName, int minutes, int startMinute) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(new Pending(id, date.toEpochDay(), plantName, minutes, startMinute));
+                return; // caricamento in corso: riapplicata quando le colonne sono pronte
+            }
+            if (id <= loadedUpTo)
+                return; // già letta dal caricamento iniziale
+            appendLocked(date.toEpochDay(), plantName, minutes, startMinute);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onActivitiesCleared() {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.clear();
+                clearedDuringLoad = true;
+            }
+            size = 0;
+            plantNames.clear();
+            plantIndex.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Durante il caricamento (sulle colonne di appoggio): tutto in coda, l'ordine si
+    // sistema una volta sola alla fine
+    private void appendUnsorted(long day, String plantName, int mins, int start) {
+        ensureCapacity();
+        epochDay[size] = (int) day;
+        plantIdx[size] = plantId(plantName);
+        minutes[size] = mins;
+        startMinute[size] = start;
+        size++;
+    }
+
+    // Le righe arrivano in ordine di inserimento: già ordinate, salvo i minuti aggiunti
+    // a mano su giorni passati. In quel caso un solo sort di (giorno, posizione)
+    // impacchettati in long, poi le colonne vengono riordinate
+    private void sortByDay() {
+        boolean sorted = true;
+        for (int i = 1; i < size && sorted; i++)
+            sorted = epochDay[i - 1] <= epochDay[i];
+        if (sorted)
+            return;
+
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++)
+            keys[i] = ((long) epochDay[i] << 32) | i;
+        Arrays.sort(keys);
+
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++)
+            order[i] = (int) keys[i];
+        epochDay = permute(epochDay, order);
+        plantIdx = permute(plantIdx, order);
+        minutes = permute(minutes, order);
+        startMinute = permute(startMinute, order);
+    }
+
+    private int[] permute(int[] column, int[] order) {
+        int[] result = new int[column.length];
+        for (int i = 0; i < order.length; i++)
+            result[i] = column[order[i]];
+        return result;
+    }
+
+    // Di solito la riga è di oggi e va in coda; una data passata (aggiunta dal
+    // calendario) sposta di una posizione le righe successive
+    private void appendLocked(long day, String plantName, int mins, int start) {
+        ensureCapacity();
+
+        int d = (int) day;
+        int pos = size == 0 || epochDay[size - 1] <= d ? size : upperBound(d);
+        if (pos < size) {
+            int tail = size - pos;
+            System.arraycopy(epochDay, pos, epochDay, pos + 1, tail);
+            System.arraycopy(plantIdx, pos, plantIdx, pos + 1, tail);
+            System.arraycopy(minutes, pos, minutes, pos + 1, tail);
+            System.arraycopy(startMinute, pos, startMinute, pos + 1, tail);
+        }
+
+        epochDay[pos] = d;
+        plantIdx[pos] = plantId(plantName);
+        minutes[pos] = mins;
+        startMinute[pos] = start;
+        size++;
+    }
+
+    private void ensureCapacity() {
+        if (size < epochDay.length)
+            return;
+        int capacity = size * 2;
+        epochDay = Arrays.copyOf(epochDay, capacity);
+        plantIdx = Arrays.copyOf(plantIdx, capacity);
+        minutes = Arrays.copyOf(minutes, capacity);
+        startMinute = Arrays.copyOf(startMinute, capacity);
+    }
+
+    private int plantId(String name) {
+        Integer id = plantIndex.get(name);
+        if (id == null) {
+            id = plantNames.size();
+            plantNames.add(name);
+            plantIndex.put(name, id);
+        }
+        return id;
+    }
+
+    // prima riga con giorno >= day
+    private int lowerBound(int day) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epochDay[mid] < day)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    // prima riga con giorno > day
+    private int upperBound(int day) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epochDay[mid] <= day)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private static int day(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    // 1970-01-01 era un giovedì (indice 3)
+    private static int weekday(int epochDay) {
+        return Math.floorMod(epochDay + 3, 7);
+    }
+}
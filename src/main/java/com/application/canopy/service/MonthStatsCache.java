@@ -0,0 +1,134 @@
+package com.application.canopy.service;
+
+import com.application.canopy.db.PlantActivityRepository;
+import com.application.canopy.model.PlantStat;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Statistiche giornaliere del calendario (giorno -> minuti per pianta), in cache per mese.
+ *
+ * Un mese si carica la prima volta che serve (dallo store in memoria, o dal DB se lo
+ * store non c'è o non è ancora caricato) e poi resta: andare avanti e indietro tra i mesi non rilegge niente.
+ * Un'attività nuova aggiorna sul posto il suo giorno, se il mese è già in cache;
+ * solo il reset svuota tutto.
+ */
+public class MonthStatsCache implements PlantActivityRepository.ActivityListener {
+
+    private final PlantActivityRepository repository;
+    private final Supplier<ActivityStore> store;
+    private final Map<YearMonth, Map<LocalDate, List<PlantStat>>> months = new HashMap<>();
+
+    // store può dare null (non ancora caricato): allora i mesi arrivano dal DB
+    MonthStatsCache(PlantActivityRepository repository, Supplier<ActivityStore> store) {
+        this.repository = repository;
+        this.store = store;
+        repository.addActivityListener(this);
+    }
+
+    // Carica i mesi che coprono l'intervallo e non sono ancora in cache (una sola lettura)
+    public synchronized void preload(LocalDate from, LocalDate to) {
+        YearMonth first = null;
+        YearMonth last = null;
+        for (YearMonth m = YearMonth.from(from); !m.isAfter(YearMonth.from(to)); m = m.plusMonths(1)) {
+            if (months.containsKey(m))
+                continue;
+            if (first == null)
+                first = m;
+            last = m;
+        }
+        if (first != null)
+            load(first, last);
+    }
+
+    // Piante del giorno, pianta con più minuti per prima (lista vuota se nessuna)
+    public synchronized List<PlantStat> forDay(LocalDate date) {
+        YearMonth month = YearMonth.from(date);
+        if (!months.containsKey(month))
+            load(month, month);
+        Map<LocalDate, List<PlantStat>> days = months.get(month);
+        List<PlantStat> stats = days != null ? days.get(date) : null;
+        return stats != null ? stats : Collections.emptyList();
+    }
+
+    // Tutti i giorni con attività del mese (copia: la cache può cambiare dopo)
+    public synchronized Map<LocalDate, List<PlantStat>> forMonth(YearMonth month) {
+        if (!months.containsKey(month))
+            load(month, month);
+        Map<LocalDate, List<PlantStat>> days = months.get(month);
+        return days != null ? new HashMap<>(days) : Collections.emptyMap();
+    }
+
+    // Mesi da first a last inclusi; se la lettura fallisce non si mette niente in cache
+    private void load(YearMonth first, YearMonth last) {
+        LocalDate from = first.atDay(1);
+        LocalDate to = last.atEndOfMonth();
+
+        Map<LocalDate, List<PlantStat>> byDay;
+        ActivityStore activityStore = store.get();
+        if (activityStore != null) {
+            byDay = fromStore(activityStore, from, to);
+        } else {
+            try {
+                byDay = ActivityAggregator.byDay(repository.getActivitiesBetween(from, to));
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return;
+            }
+        }
+
+        for (YearMonth m = first; !m.isAfter(last); m = m.plusMonths(1))
+            months.put(m, new HashMap<>());
+        byDay.forEach((date, stats) -> months.get(YearMonth.from(date)).put(date, stats));
+    }
+
+    private static Map<LocalDate, List<PlantStat>> fromStore(ActivityStore store, LocalDate from, LocalDate to) {
+        Map<LocalDate, List<PlantStat>> byDay = new HashMap<>();
+        store.minutesPerPlantPerDay(from, to).forEach((plant, minutesPerDay) -> {
+            for (int i = 0; i < minutesPerDay.length; i++) {
+                if (minutesPerDay[i] > 0)
+                    byDay.computeIfAbsent(from.plusDays(i), d -> new ArrayList<>())
+                            .add(new PlantStat(plant, minutesPerDay[i]));
+            }
+        });
+        byDay.values().forEach(MonthStatsCache::sortByMinutes);
+        return byDay;
+    }
+
+    @Override
+    public synchronized void onActivityAdded(long id, LocalDate date, String plantName, int minutes, int startMinute) {
+        Map<LocalDate, List<PlantStat>> days = months.get(YearMonth.from(date));
+        if (days == null)
+            return; // mese mai caricato: lo leggerà completo quando serve
+
+        // lista nuova: quella vecchia può essere ancora in mano a una cella del calendario
+        List<PlantStat> updated = new ArrayList<>();
+        int total = minutes;
+        for (PlantStat ps : days.getOrDefault(date, Collections.emptyList())) {
+            if (ps.name.equals(plantName))
+                total += ps.minutes;
+            else
+                updated.add(ps);
+        }
+        updated.add(new PlantStat(plantName, total));
+        sortByMinutes(updated);
+        days.put(date, updated);
+    }
+
+    @Override
+    public synchronized void onActivitiesCleared() {
+        months.clear();
+    }
+
+    private static void sortByMinutes(List<PlantStat> stats) {
+        stats.sort((a, b) -> Integer.compare(b.minutes, a.minutes));
+    }
+}
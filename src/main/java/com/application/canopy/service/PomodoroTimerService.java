@@ -1,5 +1,7 @@
 package com.application.canopy.service;
 
+import com.application.canopy.util.FlightRecording;
+import com.application.canopy.util.Metrics;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.beans.property.*;
@@ -7,6 +9,12 @@ import javafx.util.Duration;
 
 public class PomodoroTimerService {
 
+    // durata di ogni tick (listener della UI compresi) e ritardo rispetto al secondo atteso
+    private static final Metrics.Histogram TICK_TIME = Metrics.histogram("timer.tick");
+    private static final Metrics.Histogram TICK_LATENESS = Metrics.histogram("timer.tick_lateness");
+    private static final Metrics.Counter POMODORI_COMPLETED = Metrics.counter("timer.pomodori_completed");
+    private static final Metrics.Counter PHASES_FINISHED = Metrics.counter("timer.phases_finished");
+
     public enum TimerState {
         IDLE, RUNNING
     }
@@ -40,6 +48,7 @@ public class PomodoroTimerService {
     private int completedCycles = 0;
 
     private Timeline timeline;
+    private long lastTick; // nanoTime dell'ultimo tick, 0 = appena partito
     private Runnable onPomodoroCompleted; //callback per quando finisce un pomodoro completato
 
 
@@ -97,6 +106,7 @@ public class PomodoroTimerService {
     public void start() {
         if (timeline != null)
             timeline.stop();
+        lastTick = 0;
         timeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> tick()));
         timeline.setCycleCount(Timeline.INDEFINITE);
         timeline.play();
@@ -115,6 +125,18 @@ public class PomodoroTimerService {
     }
 
     private void tick() {
+        long t0 = System.nanoTime();
+        if (lastTick != 0)
+            TICK_LATENESS.recordNanos(Math.max(0, t0 - lastTick - 1_000_000_000L));
+        lastTick = t0;
+        try {
+            advance();
+        } finally {
+            TICK_TIME.recordSince(t0);
+        }
+    }
+
+    private void advance() {
         remainingSeconds.set(Math.max(0, remainingSeconds.get() - 1));
 
         // avanzamento sessione
@@ -129,8 +151,10 @@ public class PomodoroTimerService {
     }
 
     private void onPhaseFinished() {
+        PHASES_FINISHED.increment();
         if (phase.get() == Phase.FOCUS) {
             if (focusMinutes >= 25 && onPomodoroCompleted != null) {
+                POMODORI_COMPLETED.increment();
                 onPomodoroCompleted.run();
             }
 
@@ -170,6 +194,13 @@ public class PomodoroTimerService {
     }
 
     private void setPhaseInternal(Phase p, int mins) {
+        FlightRecording.TimerPhase event = new FlightRecording.TimerPhase();
+        event.from = phase.get().name();
+        event.to = p.name();
+        event.minutes = mins;
+        event.completedCycles = completedCycles;
+        event.commit();
+
         phase.set(p);
         totalSeconds.set(Math.max(1, mins) * 60);
         remainingSeconds.set(totalSeconds.get());
@@ -0,0 +1,416 @@
+package com.application.canopy.service;
+
+import com.application.canopy.db.PlantActivityRepository;
+import com.application.canopy.model.ActivityStats;
+import com.application.canopy.model.PlantStat;
+import javafx.concurrent.Task;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.TextStyle;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Export delle attività di un periodo su file, in background (Task con avanzamento).
+ *
+ * Le righe vanno dal cursore del DB direttamente al file, una per volta: in memoria
+ * restano solo i totali (per pianta, per mese, per giorno della settimana e per ora),
+ * quindi l'occupazione non dipende dalla lunghezza del periodo.
+ * Si scrive su un file temporaneo accanto a quello scelto, spostato al suo posto solo
+ * a export completato: un errore o un annullamento non lasciano file a metà.
+ *
+ * Il risultato del Task è il numero di attività esportate.
+ */
+public class ReportExporter extends Task<Integer> {
+
+    public enum Format {
+        CSV("CSV (foglio di calcolo)", "csv"),
+        JSON_LINES("JSON Lines", "jsonl"),
+        HTML("Riepilogo HTML", "html");
+
+        private final String label;
+        private final String extension;
+
+        Format(String label, String extension) {
+            this.label = label;
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    // ogni quante righe aggiornare l'avanzamento (l'aggiornamento passa dal thread FX)
+    private static final int PROGRESS_STEP = 500;
+
+    private static final Locale LOCALE = Locale.ITALY;
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final PlantActivityRepository repository;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final Format format;
+    private final Path target;
+
+    // totali raccolti durante lo streaming
+    private final Map<String, Integer> minutesPerPlant = new HashMap<>();
+    private final Map<YearMonth, Integer> minutesPerMonth = new TreeMap<>();
+    private final int[] minutesPerWeekday = new int[7];
+    private final int[] minutesPerHour = new int[24];
+    private int totalMinutes;
+    private int rows;
+    // pomodori (righe con orario di inizio) e i loro minuti, per la media a sessione
+    private int sessions;
+    private int sessionMinutes;
+    private int activeDays;
+    private long lastDay = Long.MIN_VALUE;
+
+    public ReportExporter(PlantActivityRepository repository, LocalDate from, LocalDate to, Format format, Path target) {
+        this.repository = repository;
+        this.from = from;
+        this.to = to;
+        this.format = format;
+        this.target = target.toAbsolutePath();
+    }
+
+    @Override
+    protected Integer call() throws Exception {
+        updateMessage("Conteggio attività…");
+        int expected = repository.countActivitiesBetween(from, to);
+        updateProgress(0, Math.max(1, expected));
+
+        Path dir = target.getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, ".canopy-report", ".tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writeHeader(out);
+                try {
+                    repository.forEachActivityBetween(from, to, (epochDay, plant, minutes, startMinute) -> {
+                        if (isCancelled())
+                            throw new CancellationException();
+                        try {
+                            writeRow(out, epochDay, plant, minutes, startMinute);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        if (rows % PROGRESS_STEP == 0) {
+                            updateProgress(rows, Math.max(expected, rows));
+                            updateMessage(rows + " / " + expected + " attività");
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                writeFooter(out);
+            }
+            moveIntoPlace(tmp);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        updateProgress(1, 1);
+        updateMessage(rows + " attività esportate");
+        return rows;
+    }
+
+    private void moveIntoPlace(Path tmp) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // ---- righe ----
+
+    private void writeHeader(Writer out) throws IOException {
+        if (format == Format.CSV)
+            out.write("data,pianta,minuti,inizio\n");
+    }
+
+    private void writeRow(Writer out, long epochDay, String plant, int minutes, int startMinute) throws IOException {
+        collect(epochDay, plant, minutes, startMinute);
+
+        switch (format) {
+            case CSV -> {
+                out.write(LocalDate.ofEpochDay(epochDay).toString());
+                out.write(',');
+                out.write(csv(plant));
+                out.write(',');
+                out.write(Integer.toString(minutes));
+                out.write(',');
+                if (startMinute >= 0)
+                    out.write(time(startMinute));
+                out.write('\n');
+            }
+            case JSON_LINES -> {
+                out.write("{\"tipo\":\"attivita\",\"data\":\"");
+                out.write(LocalDate.ofEpochDay(epochDay).toString());
+                out.write("\",\"pianta\":");
+                out.write(json(plant));
+                out.write(",\"minuti\":");
+                out.write(Integer.toString(minutes));
+                out.write(",\"inizio\":");
+                out.write(startMinute >= 0 ? "\"" + time(startMinute) + "\"" : "null");
+                out.write("}\n");
+            }
+            case HTML -> {
+                // solo riepilogo: le righe servono per i totali
+            }
+        }
+    }
+
+    private void collect(long epochDay, String plant, int minutes, int startMinute) {
+        rows++;
+        totalMinutes += minutes;
+        if (startMinute >= 0) {
+            sessions++;
+            sessionMinutes += minutes;
+        }
+        // righe in ordine di data: un giorno nuovo è un giorno attivo in più
+        if (epochDay != lastDay) {
+            activeDays++;
+            lastDay = epochDay;
+        }
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        minutesPerPlant.merge(plant, minutes, Integer::sum);
+        minutesPerMonth.merge(YearMonth.from(date), minutes, Integer::sum);
+        minutesPerWeekday[date.getDayOfWeek().getValue() - 1] += minutes;
+        ActivityStats.addToHours(minutesPerHour, startMinute, minutes);
+    }
+
+    // ---- chiusura: riepilogo ----
+
+    private void writeFooter(Writer out) throws IOException {
+        ActivityStats stats = new ActivityStats(minutesPerPlant, minutesPerWeekday, minutesPerHour,
+                totalMinutes, sessions, sessionMinutes, activeDays);
+        if (format == Format.JSON_LINES)
+            writeJsonSummary(out, stats);
+        else if (format == Format.HTML)
+            writeHtml(out, stats);
+    }
+
+    private void writeJsonSummary(Writer out, ActivityStats stats) throws IOException {
+        StringBuilder sb = new StringBuilder("{\"tipo\":\"riepilogo\"")
+                .append(",\"dal\":\"").append(from).append('"')
+                .append(",\"al\":\"").append(to).append('"')
+                .append(",\"minutiTotali\":").append(stats.totalMinutes())
+                .append(",\"sessioni\":").append(stats.sessions())
+                .append(",\"giorniAttivi\":").append(stats.activeDays())
+                .append(",\"piante\":{");
+        List<PlantStat> plants = stats.perPlant();
+        for (int i = 0; i < plants.size(); i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append(json(plants.get(i).name)).append(':').append(plants.get(i).minutes);
+        }
+        sb.append("},\"giorniSettimana\":").append(jsonArray(stats.minutesPerWeekday()))
+                .append(",\"ore\":").append(jsonArray(stats.minutesPerHour()))
+                .append("}\n");
+        out.write(sb.toString());
+    }
+
+    // Pagina unica, stili inline: si apre ovunque senza altri file
+    private void writeHtml(Writer out, ActivityStats stats) throws IOException {
+        String period = "dal " + from.format(DAY_FORMAT) + " al " + to.format(DAY_FORMAT);
+
+        out.write("""
+                <!DOCTYPE html>
+                <html lang="it">
+                <head>
+                <meta charset="utf-8">
+                <meta name="viewport" content="width=device-width, initial-scale=1">
+                """);
+        out.write("<title>Canopy · Report " + html(period) + "</title>\n");
+        out.write("""
+                <style>
+                  body { font-family: system-ui, sans-serif; color: #1f2a24; background: #f6f8f5; margin: 0; padding: 32px; }
+                  main { max-width: 880px; margin: 0 auto; }
+                  h1 { margin: 0 0 4px; font-size: 26px; }
+                  h2 { margin: 32px 0 12px; font-size: 18px; }
+                  .muted { color: #6b7a70; }
+                  .cards { display: grid; grid-template-columns: repeat(auto-fit, minmax(150px, 1fr)); gap: 12px; margin-top: 20px; }
+                  .card { background: #fff; border-radius: 10px; padding: 14px 16px; box-shadow: 0 1px 3px rgba(0,0,0,.08); }
+                  .card b { display: block; font-size: 22px; margin-top: 4px; }
+                  table { width: 100%; border-collapse: collapse; background: #fff; border-radius: 10px; overflow: hidden; box-shadow: 0 1px 3px rgba(0,0,0,.08); }
+                  td, th { padding: 8px 12px; text-align: left; border-bottom: 1px solid #eef2ee; }
+                  td.num, th.num { text-align: right; white-space: nowrap; }
+                  .bar { height: 10px; border-radius: 5px; background: #4f9d69; min-width: 2px; }
+                  .hours { display: flex; align-items: flex-end; gap: 3px; height: 120px; background: #fff; border-radius: 10px; padding: 12px; box-shadow: 0 1px 3px rgba(0,0,0,.08); }
+                  .hours div { flex: 1; background: #4f9d69; border-radius: 3px 3px 0 0; min-height: 1px; }
+                  .hour-labels { display: flex; gap: 3px; padding: 4px 12px; font-size: 11px; }
+                  .hour-labels span { flex: 1; text-align: center; }
+                  footer { margin-top: 32px; font-size: 12px; }
+                </style>
+                </head>
+                <body>
+                <main>
+                """);
+
+        out.write("<h1>Report attività</h1>\n");
+        out.write("<div class=\"muted\">" + html(period) + "</div>\n");
+
+        out.write("<div class=\"cards\">\n");
+        card(out, "Tempo totale", duration(stats.totalMinutes()));
+        card(out, "Sessioni", Integer.toString(stats.sessions()));
+        card(out, "Giorni attivi", Integer.toString(stats.activeDays()));
+        card(out, "Media al giorno attivo", duration(Math.round(stats.averagePerActiveDay())));
+        card(out, "Media a sessione", duration(Math.round(stats.averagePerSession())));
+        if (stats.busiestWeekday() >= 0)
+            card(out, "Giorno più attivo", cap(DayOfWeek.of(stats.busiestWeekday() + 1).getDisplayName(TextStyle.FULL, LOCALE)));
+        if (stats.busiestHour() >= 0)
+            card(out, "Fascia più attiva", String.format("%02d–%02d", stats.busiestHour(), (stats.busiestHour() + 1) % 24));
+        out.write("</div>\n");
+
+        if (stats.activeDays() == 0) {
+            out.write("<p class=\"muted\">Nessuna attività nel periodo.</p>\n");
+        } else {
+            List<PlantStat> plants = stats.perPlant();
+            int maxPlant = plants.get(0).minutes;
+            out.write("<h2>Per pianta</h2>\n<table>\n<tr><th>Pianta</th><th class=\"num\">Tempo</th><th class=\"num\">%</th><th style=\"width:40%\"></th></tr>\n");
+            for (PlantStat p : plants) {
+                out.write("<tr><td>" + html(p.name) + "</td><td class=\"num\">" + duration(p.minutes) + "</td>"
+                        + "<td class=\"num\">" + Math.round(100.0 * p.minutes / stats.totalMinutes()) + "%</td>"
+                        + "<td>" + bar(p.minutes, maxPlant) + "</td></tr>\n");
+            }
+            out.write("</table>\n");
+
+            int maxMonth = minutesPerMonth.values().stream().mapToInt(Integer::intValue).max().orElse(1);
+            out.write("<h2>Per mese</h2>\n<table>\n");
+            for (Map.Entry<YearMonth, Integer> e : minutesPerMonth.entrySet()) {
+                YearMonth m = e.getKey();
+                out.write("<tr><td>" + cap(m.getMonth().getDisplayName(TextStyle.FULL, LOCALE)) + " " + m.getYear()
+                        + "</td><td class=\"num\">" + duration(e.getValue()) + "</td>"
+                        + "<td style=\"width:50%\">" + bar(e.getValue(), maxMonth) + "</td></tr>\n");
+            }
+            out.write("</table>\n");
+
+            int maxWeekday = max(stats.minutesPerWeekday());
+            out.write("<h2>Per giorno della settimana</h2>\n<table>\n");
+            for (int d = 0; d < 7; d++) {
+                out.write("<tr><td>" + cap(DayOfWeek.of(d + 1).getDisplayName(TextStyle.FULL, LOCALE))
+                        + "</td><td class=\"num\">" + duration(stats.minutesPerWeekday()[d]) + "</td>"
+                        + "<td style=\"width:50%\">" + bar(stats.minutesPerWeekday()[d], maxWeekday) + "</td></tr>\n");
+            }
+            out.write("</table>\n");
+
+            // le ore ci sono solo per i pomodori: i minuti aggiunti a mano non hanno orario
+            int maxHour = max(stats.minutesPerHour());
+            if (maxHour > 0) {
+                out.write("<h2>Per ora del giorno</h2>\n<div class=\"hours\">");
+                for (int h = 0; h < 24; h++) {
+                    int v = stats.minutesPerHour()[h];
+                    out.write("<div style=\"height:" + percent(v, maxHour) + "%\" title=\""
+                            + String.format("%02d:00 · ", h) + duration(v) + "\"></div>");
+                }
+                out.write("</div>\n<div class=\"hour-labels muted\">");
+                for (int h = 0; h < 24; h++)
+                    out.write("<span>" + (h % 3 == 0 ? String.valueOf(h) : "") + "</span>");
+                out.write("</div>\n");
+            }
+        }
+
+        out.write("<footer class=\"muted\">Generato da Canopy il "
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")) + "</footer>\n");
+        out.write("</main>\n</body>\n</html>\n");
+    }
+
+    private static void card(Writer out, String title, String value) throws IOException {
+        out.write("<div class=\"card\"><span class=\"muted\">" + html(title) + "</span><b>" + html(value) + "</b></div>\n");
+    }
+
+    private static String bar(int value, int max) {
+        return "<div class=\"bar\" style=\"width:" + percent(value, max) + "%\"></div>";
+    }
+
+    // ---- formattazione ----
+
+    private static String percent(int value, int max) {
+        return max <= 0 ? "0" : String.format(Locale.ROOT, "%.1f", 100.0 * value / max);
+    }
+
+    private static int max(int[] values) {
+        int max = 0;
+        for (int v : values)
+            max = Math.max(max, v);
+        return max;
+    }
+
+    private static String duration(long minutes) {
+        if (minutes < 60)
+            return minutes + " min";
+        return minutes / 60 + " h " + minutes % 60 + " min";
+    }
+
+    private static String time(int minuteOfDay) {
+        return String.format("%02d:%02d", minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    private static String cap(String s) {
+        return s.substring(0, 1).toUpperCase(LOCALE) + s.substring(1);
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+            return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20)
+                        sb.append(String.format("\\u%04x", (int) c));
+                    else
+                        sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String jsonArray(int[] values) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append(values[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String html(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
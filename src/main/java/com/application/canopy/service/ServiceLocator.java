@@ -13,6 +13,17 @@ public class ServiceLocator {
 
     private static ServiceLocator instance;
     private PlantActivityRepository plantActivityRepository;
+    private YearActivityCache yearActivityCache;
+    // scritto una volta a caricamento finito: chi legge non aspetta il caricamento
+    private volatile ActivityStore activityStore;
+    private ActivityStatistics activityStatistics;
+    private MonthStatsCache monthStatsCache;
+
+    // Lock a parte per i servizi che dipendono dallo store: non deve bloccare chi chiede
+    // solo il repository (i controller, sul thread FX)
+    private final Object storeLock = new Object();
+    // tenuto per tutto il caricamento dello store: lo prende solo loadActivityStore
+    private final Object storeLoadLock = new Object();
 
     private ServiceLocator() {
         // Init lazy o eager, qui facciamo lazy su richiesta o init esplicito
@@ -33,7 +44,9 @@ public class ServiceLocator {
      * Per semplicità, qui logghiamo e restituiamo null in caso di errore grave,
      * così l'app non crasha del tutto.
      */
-    public PlantActivityRepository getPlantActivityRepository() {
+    // synchronized: lo store viene caricato in background all'avvio, e tutti devono
+    // ricevere lo stesso repository (i listener sono registrati lì)
+    public synchronized PlantActivityRepository getPlantActivityRepository() {
         if (plantActivityRepository == null) {
             try {
                 // Assicura che il DB sia connesso
@@ -48,4 +61,83 @@ public class ServiceLocator {
         }
         return plantActivityRepository;
     }
+
+    /**
+     * Cache della vista "Anno" del calendario, condivisa: resta valida anche se la pagina
+     * del calendario viene scartata e ricaricata. Null se il DB non è disponibile.
+     */
+    public synchronized YearActivityCache getYearActivityCache() {
+        if (yearActivityCache == null) {
+            PlantActivityRepository repo = getPlantActivityRepository();
+            if (repo == null)
+                return null;
+            yearActivityCache = new YearActivityCache(repo);
+        }
+        return yearActivityCache;
+    }
+
+    /**
+     * Attività in memoria a colonne, per le statistiche (vedi ActivityStore).
+     * Legge tutta la tabella e aspetta la fine della lettura: all'avvio la chiama Main in
+     * background. Null se il DB non è disponibile.
+     */
+    public ActivityStore loadActivityStore() {
+        PlantActivityRepository repo = getPlantActivityRepository();
+        if (repo == null)
+            return null;
+        synchronized (storeLoadLock) {
+            if (activityStore == null) {
+                ActivityStore store = new ActivityStore();
+                try {
+                    store.load(repo);
+                } catch (SQLException e) {
+                    System.err.println("[ServiceLocator] Errore caricamento attività: " + e.getMessage());
+                    e.printStackTrace();
+                    repo.removeActivityListener(store);
+                    return null;
+                }
+                activityStore = store;
+            }
+            return activityStore;
+        }
+    }
+
+    /**
+     * Lo store se è già caricato, altrimenti null (senza aspettare): chi chiama ripiega
+     * sul DB e riprova più tardi.
+     */
+    public ActivityStore getActivityStore() {
+        return activityStore;
+    }
+
+    /**
+     * Statistiche per periodo con cache mensile (vedi ActivityStatistics).
+     * Null finché lo store non è caricato (o se non è disponibile).
+     */
+    public ActivityStatistics getActivityStatistics() {
+        ActivityStore store = activityStore;
+        if (store == null)
+            return null;
+        synchronized (storeLock) {
+            if (activityStatistics == null)
+                activityStatistics = new ActivityStatistics(store, getPlantActivityRepository());
+            return activityStatistics;
+        }
+    }
+
+    /**
+     * Statistiche giornaliere del calendario in cache per mese, condivise come quelle
+     * dell'anno. I mesi arrivano dallo store se è già caricato, altrimenti dal DB.
+     * Null se il DB non è disponibile.
+     */
+    public MonthStatsCache getMonthStatsCache() {
+        PlantActivityRepository repo = getPlantActivityRepository();
+        if (repo == null)
+            return null;
+        synchronized (storeLock) {
+            if (monthStatsCache == null)
+                monthStatsCache = new MonthStatsCache(repo, this::getActivityStore);
+            return monthStatsCache;
+        }
+    }
 }
@@ -0,0 +1,75 @@
+package com.application.canopy.service;
+
+import com.application.canopy.db.PlantActivityRepository;
+import com.application.canopy.model.PlantStat;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dati della vista "Anno" del calendario, in cache per anno.
+ *
+ * Ogni anno costa due query raggruppate (minuti per giorno e per pianta) la prima volta
+ * che si apre; poi passare da un anno all'altro non tocca il DB. Un'attività nuova
+ * invalida solo il suo anno, il reset svuota tutto.
+ */
+public class YearActivityCache implements PlantActivityRepository.ActivityListener {
+
+    // Un anno: minuti per giorno (indice 0 = 1 gennaio) e totali per pianta
+    public record YearData(int year, int[] minutesPerDay, List<PlantStat> perPlant) {
+
+        public int totalMinutes() {
+            int total = 0;
+            for (int m : minutesPerDay)
+                total += m;
+            return total;
+        }
+
+        public int activeDays() {
+            int days = 0;
+            for (int m : minutesPerDay) {
+                if (m > 0)
+                    days++;
+            }
+            return days;
+        }
+    }
+
+    private final PlantActivityRepository repository;
+    private final Map<Integer, YearData> years = new HashMap<>();
+
+    YearActivityCache(PlantActivityRepository repository) {
+        this.repository = repository;
+        repository.addActivityListener(this);
+    }
+
+    // null se il DB non risponde
+    public synchronized YearData get(int year) {
+        YearData data = years.get(year);
+        if (data != null)
+            return data;
+
+        try {
+            data = new YearData(year, repository.getMinutesPerDay(year),
+                    List.copyOf(repository.getMinutesPerPlant(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31))));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        years.put(year, data);
+        return data;
+    }
+
+    @Override
+    public synchronized void onActivityAdded(long id, LocalDate date, String plantName, int minutes, int startMinute) {
+        years.remove(date.getYear());
+    }
+
+    @Override
+    public synchronized void onActivitiesCleared() {
+        years.clear();
+    }
+}
@@ -0,0 +1,27 @@
+package com.application.canopy.util;
+
+/**
+ * Indice degli atlas delle immagini, scritto in build da AtlasPacker (src/build) e letto
+ * a runtime da ResourceManager: nome del file e forma delle chiavi stanno solo qui.
+ *
+ * Un file properties, una riga per immagine sorgente:
+ * "gruppo/file sorgente=file atlas,x,y,larghezza,altezza"
+ * (es. "stages/Menta-Stage1.png=stages-Menta.png,334,2,330,560").
+ * I file atlas stanno nella stessa cartella dell'indice.
+ */
+public final class AtlasIndex {
+
+    public static final String FILE = "atlas.properties";
+
+    // miniature delle piante (liste, calendario, erbario)
+    public static final String THUMBS = "thumbs";
+    // stage di crescita + pianta finale, un atlas per pianta (immagine grande della home)
+    public static final String STAGES = "stages";
+
+    private AtlasIndex() {
+    }
+
+    public static String key(String group, String sourceFile) {
+        return group + "/" + sourceFile;
+    }
+}
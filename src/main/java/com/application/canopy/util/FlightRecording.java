@@ -0,0 +1,210 @@
+package com.application.canopy.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.prefs.Preferences;
+
+/**
+ * Eventi Java Flight Recorder dell'app e registrazione continua.
+ *
+ * Gli eventi (categoria "Canopy") si vedono in qualsiasi registrazione JFR, per es.
+ * java -XX:StartFlightRecording ... oppure da JDK Mission Control.
+ *
+ * Dalle impostazioni si può attivare una registrazione continua in memoria
+ * (buffer circolare: ultimi MAX_AGE minuti, al massimo MAX_SIZE byte): quando
+ * FrameMonitor rileva un blocco del thread FX la registrazione viene salvata in
+ * data/recordings, così un blocco segnalato dall'utente si può analizzare dopo.
+ */
+public final class FlightRecording {
+
+    private static final Preferences PREFS = Preferences.userNodeForPackage(FlightRecording.class);
+    private static final String PREF_CONTINUOUS = "canopy.jfr.continuous";
+
+    private static final Path RECORDINGS_DIR = Paths.get(System.getProperty("user.dir"), "data", "recordings");
+    private static final Duration MAX_AGE = Duration.ofMinutes(5);
+    private static final long MAX_SIZE = 32L * 1024 * 1024;
+    // al massimo un dump al minuto: un blocco lungo ne genera diversi di fila
+    private static final long DUMP_INTERVAL_MS = 60_000;
+
+    private static Recording continuous;
+    private static long lastDumpMillis;
+
+    private FlightRecording() {
+    }
+
+    // ----------------- REGISTRAZIONE CONTINUA -----------------
+
+    // All'avvio: riparte se era stata attivata dalle impostazioni
+    public static void startIfEnabled() {
+        if (isContinuousEnabled())
+            setContinuousEnabled(true);
+    }
+
+    public static boolean isContinuousEnabled() {
+        return PREFS.getBoolean(PREF_CONTINUOUS, false);
+    }
+
+    public static synchronized void setContinuousEnabled(boolean enabled) {
+        PREFS.putBoolean(PREF_CONTINUOUS, enabled);
+
+        if (enabled && continuous == null) {
+            try {
+                // profilo "default" del JDK (overhead ~1%) più gli eventi dell'app
+                Recording r = new Recording(Configuration.getConfiguration("default"));
+                r.setName("canopy-continuous");
+                r.setMaxAge(MAX_AGE);
+                r.setMaxSize(MAX_SIZE);
+                r.setToDisk(true);
+                for (String event : new String[] { TimerPhase.NAME, Pomodoro.NAME, Query.NAME,
+                        Navigation.NAME, ImageDecode.NAME, FxStall.NAME }) {
+                    r.enable(event);
+                }
+                r.start();
+                continuous = r;
+                System.out.println("[FlightRecording] Registrazione continua avviata");
+            } catch (IOException | ParseException | IllegalStateException e) {
+                System.err.println("[FlightRecording] Impossibile avviare la registrazione: " + e.getMessage());
+            }
+        } else if (!enabled && continuous != null) {
+            continuous.close();
+            continuous = null;
+            System.out.println("[FlightRecording] Registrazione continua fermata");
+        }
+    }
+
+    // Salva la registrazione continua (chiamato da FrameMonitor quando il thread FX si blocca)
+    public static synchronized Path dumpOnStall() {
+        if (continuous == null)
+            return null;
+
+        long now = System.currentTimeMillis();
+        if (now - lastDumpMillis < DUMP_INTERVAL_MS)
+            return null;
+        lastDumpMillis = now;
+
+        try {
+            Files.createDirectories(RECORDINGS_DIR);
+            Path file = RECORDINGS_DIR.resolve("stall-"
+                    + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".jfr");
+            continuous.dump(file);
+            System.err.println("[FlightRecording] Registrazione salvata in " + file);
+            return file;
+        } catch (IOException e) {
+            System.err.println("[FlightRecording] Impossibile salvare la registrazione: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static synchronized void stop() {
+        if (continuous != null) {
+            continuous.close();
+            continuous = null;
+        }
+    }
+
+    // ----------------- EVENTI -----------------
+
+    @Name(TimerPhase.NAME)
+    @Label("Fase del timer")
+    @Category({ "Canopy", "Timer" })
+    @StackTrace(false)
+    public static final class TimerPhase extends Event {
+        static final String NAME = "canopy.TimerPhase";
+
+        @Label("Da")
+        public String from;
+        @Label("A")
+        public String to;
+        @Label("Minuti")
+        public int minutes;
+        @Label("Cicli completati")
+        public int completedCycles;
+    }
+
+    @Name(Pomodoro.NAME)
+    @Label("Pomodoro")
+    @Description("Gestione di un pomodoro completato o interrotto (stato di gioco e salvataggi)")
+    @Category({ "Canopy", "Timer" })
+    public static final class Pomodoro extends Event {
+        static final String NAME = "canopy.Pomodoro";
+
+        @Label("Pianta")
+        public String plantId;
+        @Label("Esito")
+        public String outcome;
+    }
+
+    @Name(Query.NAME)
+    @Label("Query SQLite")
+    @Description("Dall'esecuzione alla chiusura del ResultSet (righe lette comprese)")
+    @Category({ "Canopy", "Database" })
+    public static final class Query extends Event {
+        static final String NAME = "canopy.Query";
+
+        @Label("SQL")
+        public String sql;
+        @Label("Righe")
+        public long rows;
+    }
+
+    @Name(Navigation.NAME)
+    @Label("Navigazione")
+    @Category({ "Canopy", "UI" })
+    @StackTrace(false)
+    public static final class Navigation extends Event {
+        static final String NAME = "canopy.Navigation";
+
+        @Label("Pagina")
+        public String route;
+        @Label("Dalla cache")
+        public boolean cached;
+    }
+
+    @Name(ImageDecode.NAME)
+    @Label("Decodifica immagine")
+    @Description("Dalla richiesta all'immagine pronta")
+    @Category({ "Canopy", "UI" })
+    @StackTrace(false)
+    public static final class ImageDecode extends Event {
+        static final String NAME = "canopy.ImageDecode";
+
+        @Label("Percorso")
+        public String path;
+        @Label("Larghezza")
+        public int width;
+        @Label("Altezza")
+        public int height;
+        @Label("In background")
+        public boolean background;
+    }
+
+    @Name(FxStall.NAME)
+    @Label("Blocco del thread FX")
+    @Category({ "Canopy", "UI" })
+    @StackTrace(false)
+    public static final class FxStall extends Event {
+        static final String NAME = "canopy.FxStall";
+
+        @Label("Durata (ms)")
+        public long millis;
+        @Label("Vista")
+        public String route;
+        @Label("Frame più frequente")
+        public String topFrame;
+    }
+}
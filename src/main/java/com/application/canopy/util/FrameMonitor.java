@@ -0,0 +1,346 @@
+package com.application.canopy.util;
+
+import com.application.canopy.Navigator;
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.stage.Popup;
+import javafx.stage.Window;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.prefs.Preferences;
+
+/**
+ * Diagnostica dei frame di JavaFX, abbastanza leggera da restare attiva in produzione.
+ *
+ * - Pulse della scena: durata di CSS + layout, misurata tra i listener pre e post layout
+ *   della Scene. Con -Dcanopy.diagnostics.cssSplit=true il listener esegue anche il pass
+ *   CSS (root.applyCss) per separarlo dal layout: forza un pass CSS completo a ogni
+ *   pulse, quindi è solo per le indagini e non è mai attivo di default.
+ *   Il rendering vero avviene dopo, sul thread di render, e JavaFX non lo espone:
+ *   quando l'app anima, il tempo tra due pulse consecutivi dà la cadenza reale dei frame.
+ * - Blocchi del thread FX: un thread di guardia manda un "ping" con Platform.runLater;
+ *   se non torna entro la soglia campiona lo stack del thread FX finché non si sblocca.
+ * - Vista corrente (Navigator).
+ *
+ * Nessun AnimationTimer: senza pulse non si misura niente e non si costringe l'app
+ * a ridisegnare a vuoto.
+ *
+ * -Dcanopy.diagnostics=off     spento del tutto
+ * -Dcanopy.diagnostics=log     riepilogo periodico su console
+ * -Dcanopy.diagnostics=overlay overlay visibile all'avvio
+ * -Dcanopy.stallThresholdMs=N  soglia dei blocchi (default 200 ms)
+ * -Dcanopy.diagnostics.cssSplit=true  tempi CSS e layout separati (costoso, vedi sopra)
+ * F12 (o l'opzione nelle impostazioni) mostra/nasconde l'overlay.
+ */
+public final class FrameMonitor {
+
+    private static final Preferences PREFS = Preferences.userNodeForPackage(FrameMonitor.class);
+    private static final String PREF_OVERLAY = "canopy.diagnostics.overlay";
+
+    private static final String MODE = System.getProperty("canopy.diagnostics", "");
+    private static final long STALL_THRESHOLD_NANOS =
+            Long.getLong("canopy.stallThresholdMs", 200) * 1_000_000L;
+    private static final boolean CSS_SPLIT = Boolean.getBoolean("canopy.diagnostics.cssSplit");
+
+    // un pulse di CSS + layout oltre mezzo frame a 60 Hz è già sospetto
+    private static final long SLOW_PULSE_NANOS = 8_000_000L;
+    // due pulse più vicini di così sono frame consecutivi di un'animazione
+    private static final long CONSECUTIVE_FRAME_NANOS = 250_000_000L;
+
+    private static final long WATCH_INTERVAL_MS = 50;
+    private static final long LOG_INTERVAL_NANOS = 5_000_000_000L;
+    private static final long OVERLAY_INTERVAL_NANOS = 500_000_000L;
+    private static final int MAX_STACK_SAMPLES = 20;
+    private static final int PRINTED_FRAMES = 15;
+
+    private static final BooleanProperty OVERLAY_VISIBLE = new SimpleBooleanProperty(false);
+
+    private static boolean installed;
+    private static Thread fxThread;
+
+    // ---- statistiche della finestra corrente (solo thread FX) ----
+    private static long pulseStart;
+    private static long cssEnd;
+    private static long lastPulseStart;
+    private static int pulses;
+    private static long cssNanos;
+    private static long layoutNanos;
+    private static long maxPulseNanos;
+    private static int slowPulses;
+    private static int frames;
+    private static long frameNanos;
+    private static long maxFrameNanos;
+    private static int stalls;
+    private static long maxStallNanos;
+
+    // ---- thread di guardia ----
+    private static volatile boolean pingPending;
+    private static volatile long pingSentAt;
+    private static volatile long pongAt;
+
+    private static Popup overlay;
+    private static Label overlayLabel;
+
+    private FrameMonitor() {
+    }
+
+    // Da chiamare sul thread FX una volta creata la scena principale
+    public static void install(Scene scene) {
+        if (installed || scene == null || "off".equals(MODE))
+            return;
+        installed = true;
+        fxThread = Thread.currentThread();
+
+        if (CSS_SPLIT) {
+            scene.addPreLayoutPulseListener(() -> {
+                pulseStart = System.nanoTime();
+                Parent root = scene.getRoot();
+                if (root != null)
+                    root.applyCss();
+                cssEnd = System.nanoTime();
+            });
+        } else {
+            scene.addPreLayoutPulseListener(() -> pulseStart = cssEnd = System.nanoTime());
+        }
+        scene.addPostLayoutPulseListener(FrameMonitor::onPulseEnd);
+
+        // F12 mostra/nasconde l'overlay
+        scene.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+            if (e.getCode() == KeyCode.F12) {
+                OVERLAY_VISIBLE.set(!OVERLAY_VISIBLE.get());
+                e.consume();
+            }
+        });
+
+        OVERLAY_VISIBLE.set("overlay".equals(MODE) || PREFS.getBoolean(PREF_OVERLAY, false));
+        OVERLAY_VISIBLE.addListener((obs, oldVal, newVal) -> {
+            PREFS.putBoolean(PREF_OVERLAY, newVal);
+            showOverlay(scene.getWindow(), newVal);
+        });
+        if (OVERLAY_VISIBLE.get())
+            showOverlay(scene.getWindow(), true);
+
+        Thread watchdog = new Thread(FrameMonitor::watch, "canopy-fx-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+
+        System.out.println("[FrameMonitor] Diagnostica attiva (soglia blocchi "
+                + STALL_THRESHOLD_NANOS / 1_000_000 + " ms" + ("log".equals(MODE) ? ", log" : "")
+                + (CSS_SPLIT ? ", css separato" : "") + ")");
+    }
+
+    public static BooleanProperty overlayVisibleProperty() {
+        return OVERLAY_VISIBLE;
+    }
+
+    // ----------------- PULSE -----------------
+
+    private static void onPulseEnd() {
+        long end = System.nanoTime();
+        long css = cssEnd - pulseStart;
+        long total = end - pulseStart;
+
+        pulses++;
+        cssNanos += css;
+        layoutNanos += total - css;
+        if (total > maxPulseNanos)
+            maxPulseNanos = total;
+        if (total > SLOW_PULSE_NANOS)
+            slowPulses++;
+
+        if (lastPulseStart != 0) {
+            long interval = pulseStart - lastPulseStart;
+            if (interval < CONSECUTIVE_FRAME_NANOS) {
+                frames++;
+                frameNanos += interval;
+                if (interval > maxFrameNanos)
+                    maxFrameNanos = interval;
+            }
+        }
+        lastPulseStart = pulseStart;
+    }
+
+    private static String describeWindow() {
+        String view = Navigator.getCurrentRoute();
+        StringBuilder sb = new StringBuilder();
+        sb.append("vista ").append(view != null ? view : "-");
+
+        if (pulses > 0 && CSS_SPLIT) {
+            sb.append(String.format(" · pulse %.2f ms (css %.2f / layout %.2f) max %.1f ms · lenti %d/%d",
+                    ms(cssNanos + layoutNanos) / pulses, ms(cssNanos) / pulses, ms(layoutNanos) / pulses,
+                    ms(maxPulseNanos), slowPulses, pulses));
+        } else if (pulses > 0) {
+            sb.append(String.format(" · pulse css+layout %.2f ms max %.1f ms · lenti %d/%d",
+                    ms(layoutNanos) / pulses, ms(maxPulseNanos), slowPulses, pulses));
+        } else {
+            sb.append(" · nessun pulse");
+        }
+        if (frames > 0) {
+            double avg = ms(frameNanos) / frames;
+            sb.append(String.format(" · frame %.1f ms (%.0f fps) max %.1f ms", avg, 1000 / avg, ms(maxFrameNanos)));
+        }
+        sb.append(" · blocchi ").append(stalls);
+        if (stalls > 0)
+            sb.append(String.format(" (max %.0f ms)", ms(maxStallNanos)));
+        return sb.toString();
+    }
+
+    private static void resetWindow() {
+        pulses = 0;
+        cssNanos = 0;
+        layoutNanos = 0;
+        maxPulseNanos = 0;
+        slowPulses = 0;
+        frames = 0;
+        frameNanos = 0;
+        maxFrameNanos = 0;
+        stalls = 0;
+        maxStallNanos = 0;
+    }
+
+    // ----------------- BLOCCHI DEL THREAD FX -----------------
+
+    private static void watch() {
+        List<StackTraceElement[]> samples = new ArrayList<>();
+        long lastLog = System.nanoTime();
+        long lastOverlay = lastLog;
+
+        while (true) {
+            try {
+                Thread.sleep(WATCH_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long now = System.nanoTime();
+
+            if (pingPending) {
+                // il thread FX non ha ancora risposto: campiona cosa sta facendo
+                if (now - pingSentAt > STALL_THRESHOLD_NANOS && samples.size() < MAX_STACK_SAMPLES)
+                    samples.add(fxThread.getStackTrace());
+            } else {
+                if (!samples.isEmpty()) {
+                    reportStall(pongAt - pingSentAt, samples);
+                    samples.clear();
+                }
+                pingSentAt = now;
+                pingPending = true;
+                Platform.runLater(() -> {
+                    pongAt = System.nanoTime();
+                    pingPending = false;
+                });
+            }
+
+            // Platform.runLater non richiede un pulse: riepilogo e overlay non disturbano
+            if ("log".equals(MODE) && now - lastLog > LOG_INTERVAL_NANOS) {
+                lastLog = now;
+                Platform.runLater(() -> {
+                    if (pulses > 0 || stalls > 0)
+                        System.out.println("[FrameMonitor] " + describeWindow());
+                    resetWindow();
+                });
+            } else if (OVERLAY_VISIBLE.get() && now - lastOverlay > OVERLAY_INTERVAL_NANOS) {
+                lastOverlay = now;
+                Platform.runLater(() -> {
+                    if (overlayLabel != null)
+                        overlayLabel.setText(describeWindow().replace(" · ", "\n"));
+                    if (!"log".equals(MODE))
+                        resetWindow();
+                });
+            }
+        }
+    }
+
+    private static void reportStall(long nanos, List<StackTraceElement[]> samples) {
+        // frame in cima allo stack contati su tutti i campioni: dove il thread FX passa il tempo
+        Map<String, Integer> hot = new HashMap<>();
+        for (StackTraceElement[] stack : samples) {
+            if (stack.length > 0)
+                hot.merge(stack[0].toString(), 1, Integer::sum);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("[FrameMonitor] Thread FX bloccato per %.0f ms (vista %s, %d campioni)%n",
+                ms(nanos), Navigator.getCurrentRoute(), samples.size()));
+        hot.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(3)
+                .forEach(e -> sb.append("    ").append(e.getValue()).append("x ").append(e.getKey())
+                        .append(System.lineSeparator()));
+        sb.append("  primo campione:").append(System.lineSeparator());
+        StackTraceElement[] first = samples.get(0);
+        for (int i = 0; i < Math.min(PRINTED_FRAMES, first.length); i++) {
+            sb.append("    at ").append(first[i]).append(System.lineSeparator());
+        }
+        System.err.print(sb);
+
+        // evento JFR e, se la registrazione continua è attiva, dump degli ultimi minuti
+        FlightRecording.FxStall event = new FlightRecording.FxStall();
+        event.millis = nanos / 1_000_000;
+        event.route = Navigator.getCurrentRoute();
+        event.topFrame = hot.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null);
+        event.commit();
+        FlightRecording.dumpOnStall();
+
+        Platform.runLater(() -> {
+            stalls++;
+            if (nanos > maxStallNanos)
+                maxStallNanos = nanos;
+        });
+    }
+
+    // ----------------- OVERLAY -----------------
+
+    // Finestra popup sopra la principale: non tocca il grafo della scena dell'app
+    private static void showOverlay(Window owner, boolean visible) {
+        if (owner == null)
+            return;
+
+        if (overlay == null) {
+            overlayLabel = new Label("diagnostica…");
+            overlayLabel.setMouseTransparent(true);
+            overlayLabel.setPrefWidth(320);
+            overlayLabel.setStyle("-fx-background-color: rgba(0,0,0,0.72); -fx-text-fill: #e6f2e6;"
+                    + " -fx-font-family: monospace; -fx-font-size: 11px; -fx-padding: 6 10;"
+                    + " -fx-background-radius: 6;");
+
+            overlay = new Popup();
+            overlay.getContent().add(overlayLabel);
+            overlay.setAutoHide(false);
+            overlay.setHideOnEscape(false);
+
+            owner.xProperty().addListener((obs, o, n) -> placeOverlay(owner));
+            owner.yProperty().addListener((obs, o, n) -> placeOverlay(owner));
+            owner.widthProperty().addListener((obs, o, n) -> placeOverlay(owner));
+        }
+
+        if (visible) {
+            overlay.show(owner);
+            placeOverlay(owner);
+        } else {
+            overlay.hide();
+        }
+    }
+
+    private static void placeOverlay(Window owner) {
+        if (overlay == null || !overlay.isShowing())
+            return;
+        overlay.setX(owner.getX() + owner.getWidth() - overlayLabel.getPrefWidth() - 24);
+        overlay.setY(owner.getY() + 48);
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,376 @@
+package com.application.canopy.util;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registro delle metriche dell'app: contatori, gauge e istogrammi dei tempi.
+ *
+ * Registrare un valore non alloca niente: i contatori sono LongAdder e gli istogrammi
+ * hanno bucket fissi log-lineari (stile HDR: 16 bucket per ogni potenza di due,
+ * errore massimo ~6%) in un AtomicLongArray. Le metriche vanno create una volta
+ * (campi static final) e poi solo aggiornate.
+ *
+ * Esportazione:
+ * - JMX: com.application.canopy:type=Metrics (jconsole, VisualVM...)
+ * - file di testo in formato Prometheus, data/metrics.prom, riscritto ogni
+ *   -Dcanopy.metricsIntervalSec secondi (default 60, 0 = mai) e all'uscita
+ */
+public final class Metrics {
+
+    private static final Path EXPORT_FILE = Paths.get(System.getProperty("user.dir"), "data", "metrics.prom");
+    private static final long EXPORT_INTERVAL_SEC = Long.getLong("canopy.metricsIntervalSec", 60);
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService exporter;
+
+    private Metrics() {
+    }
+
+    // ----------------- REGISTRO -----------------
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new Counter());
+    }
+
+    // valore letto al momento dell'esportazione
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        private Counter() {
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long n) {
+            value.add(n);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * Istogramma di durate in microsecondi (da 1 µs a ~12 giorni).
+     * I primi 32 bucket sono esatti, poi ogni potenza di due è divisa in 16.
+     */
+    public static final class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB_COUNT = 1 << SUB_BITS; // 16
+        private static final int LINEAR = SUB_COUNT * 2; // 0..31 esatti
+        private static final int MAX_SHIFT = 36;
+        private static final int BUCKETS = LINEAR + MAX_SHIFT * SUB_COUNT;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private Histogram() {
+        }
+
+        // da usare con t0 = System.nanoTime() preso all'inizio dell'operazione
+        public void recordSince(long startNanos) {
+            recordNanos(System.nanoTime() - startNanos);
+        }
+
+        public void recordNanos(long nanos) {
+            record(Math.max(0, nanos / 1_000));
+        }
+
+        public void record(long micros) {
+            buckets.incrementAndGet(bucketOf(micros));
+            count.increment();
+            sum.add(micros);
+            max.accumulate(micros);
+        }
+
+        private static int bucketOf(long v) {
+            if (v < LINEAR)
+                return (int) v;
+            int exponent = 63 - Long.numberOfLeadingZeros(v);
+            int shift = exponent - SUB_BITS; // tiene 5 bit significativi
+            if (shift > MAX_SHIFT)
+                return BUCKETS - 1;
+            int mantissa = (int) (v >>> shift); // 16..31
+            return LINEAR + (shift - 1) * SUB_COUNT + (mantissa - SUB_COUNT);
+        }
+
+        // valore centrale del bucket
+        private static long valueOf(int bucket) {
+            if (bucket < LINEAR)
+                return bucket;
+            int shift = (bucket - LINEAR) / SUB_COUNT + 1;
+            long mantissa = (bucket - LINEAR) % SUB_COUNT + SUB_COUNT;
+            return (mantissa << shift) + (1L << (shift - 1));
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSumMicros() {
+            return sum.sum();
+        }
+
+        public long getMaxMicros() {
+            return max.get();
+        }
+
+        // percentile (0..1) approssimato al bucket, in microsecondi
+        public long percentile(double p) {
+            long total = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0)
+                return 0;
+
+            long rank = (long) Math.ceil(p * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank)
+                    return Math.min(valueOf(i), getMaxMicros());
+            }
+            return getMaxMicros();
+        }
+    }
+
+    // ----------------- ESPORTAZIONE -----------------
+
+    // Registra l'MBean e avvia la scrittura periodica del file (una volta sola)
+    public static synchronized void startExport() {
+        if (exporter != null)
+            return;
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.application.canopy:type=Metrics");
+            if (!server.isRegistered(name))
+                server.registerMBean(new MetricsMBean(), name);
+        } catch (Exception e) {
+            System.err.println("[Metrics] Registrazione JMX fallita: " + e.getMessage());
+        }
+
+        exporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "canopy-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        if (EXPORT_INTERVAL_SEC > 0) {
+            exporter.scheduleWithFixedDelay(Metrics::writeExportFile,
+                    EXPORT_INTERVAL_SEC, EXPORT_INTERVAL_SEC, TimeUnit.SECONDS);
+        }
+    }
+
+    // Ultima scrittura del file (all'uscita)
+    public static synchronized void stopExport() {
+        if (exporter == null)
+            return;
+        exporter.shutdownNow();
+        exporter = null;
+        writeExportFile();
+    }
+
+    private static final String[] HISTOGRAM_SUFFIXES = { "count", "sum_us", "p50_us", "p90_us", "p99_us", "max_us" };
+
+    // Tutte le metriche come nome -> valore (gli istogrammi come _count, _p50, _p99...)
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> values = new TreeMap<>();
+        COUNTERS.forEach((name, c) -> values.put(name, c.get()));
+        GAUGES.forEach((name, g) -> values.put(name, readGauge(g)));
+        HISTOGRAMS.forEach((name, h) -> {
+            values.put(name + ".count", h.getCount());
+            values.put(name + ".sum_us", h.getSumMicros());
+            values.put(name + ".p50_us", h.percentile(0.50));
+            values.put(name + ".p90_us", h.percentile(0.90));
+            values.put(name + ".p99_us", h.percentile(0.99));
+            values.put(name + ".max_us", h.getMaxMicros());
+        });
+        return values;
+    }
+
+    // Un solo valore dello snapshot (stessi nomi), null se non esiste:
+    // calcola solo quello richiesto, non tutti i percentili di tutti gli istogrammi
+    public static Long value(String name) {
+        Counter c = COUNTERS.get(name);
+        if (c != null)
+            return c.get();
+        LongSupplier g = GAUGES.get(name);
+        if (g != null)
+            return readGauge(g);
+
+        int dot = name.lastIndexOf('.');
+        Histogram h = dot > 0 ? HISTOGRAMS.get(name.substring(0, dot)) : null;
+        if (h == null)
+            return null;
+        return switch (name.substring(dot + 1)) {
+            case "count" -> h.getCount();
+            case "sum_us" -> h.getSumMicros();
+            case "p50_us" -> h.percentile(0.50);
+            case "p90_us" -> h.percentile(0.90);
+            case "p99_us" -> h.percentile(0.99);
+            case "max_us" -> h.getMaxMicros();
+            default -> null;
+        };
+    }
+
+    // Nomi dello snapshot, senza leggere i valori
+    private static List<String> names() {
+        List<String> names = new ArrayList<>(COUNTERS.keySet());
+        names.addAll(GAUGES.keySet());
+        for (String h : HISTOGRAMS.keySet()) {
+            for (String suffix : HISTOGRAM_SUFFIXES)
+                names.add(h + "." + suffix);
+        }
+        names.sort(null);
+        return names;
+    }
+
+    // Formato testo di Prometheus: contatori, gauge e istogrammi come summary (in secondi)
+    public static String toPrometheusText() {
+        StringBuilder sb = new StringBuilder();
+
+        new TreeMap<>(COUNTERS).forEach((name, c) -> {
+            String n = promName(name) + "_total";
+            sb.append("# TYPE ").append(n).append(" counter\n");
+            sb.append(n).append(' ').append(c.get()).append('\n');
+        });
+        new TreeMap<>(GAUGES).forEach((name, g) -> {
+            String n = promName(name);
+            sb.append("# TYPE ").append(n).append(" gauge\n");
+            sb.append(n).append(' ').append(readGauge(g)).append('\n');
+        });
+        new TreeMap<>(HISTOGRAMS).forEach((name, h) -> {
+            String n = promName(name) + "_seconds";
+            sb.append("# TYPE ").append(n).append(" summary\n");
+            for (double q : new double[] { 0.5, 0.9, 0.99 }) {
+                sb.append(n).append("{quantile=\"").append(q).append("\"} ")
+                        .append(seconds(h.percentile(q))).append('\n');
+            }
+            sb.append(n).append("_sum ").append(seconds(h.getSumMicros())).append('\n');
+            sb.append(n).append("_count ").append(h.getCount()).append('\n');
+        });
+        return sb.toString();
+    }
+
+    private static void writeExportFile() {
+        try {
+            Files.createDirectories(EXPORT_FILE.getParent());
+            // scrittura atomica: chi legge il file non lo vede mai a metà
+            Path tmp = EXPORT_FILE.resolveSibling(EXPORT_FILE.getFileName() + ".tmp");
+            Files.writeString(tmp, toPrometheusText(), StandardCharsets.UTF_8);
+            Files.move(tmp, EXPORT_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[Metrics] Impossibile scrivere " + EXPORT_FILE + ": " + e.getMessage());
+        }
+    }
+
+    private static long readGauge(LongSupplier g) {
+        try {
+            return g.getAsLong();
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static String promName(String name) {
+        return "canopy_" + name.replaceAll("[^a-zA-Z0-9_]", "_");
+    }
+
+    private static String seconds(long micros) {
+        return String.format(Locale.ROOT, "%.6f", micros / 1_000_000.0);
+    }
+
+    // MBean dinamico: un attributo (sola lettura) per ogni valore dello snapshot
+    private static final class MetricsMBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Long value = value(attribute);
+            if (value == null)
+                throw new AttributeNotFoundException(attribute);
+            return value;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metriche in sola lettura: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String a : attributes) {
+                Long v = value(a);
+                if (v != null)
+                    list.add(new Attribute(a, v));
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        // ricostruito a ogni richiesta: le metriche nascono man mano che l'app le usa
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attrs = new ArrayList<>();
+            for (String name : names()) {
+                attrs.add(new MBeanAttributeInfo(name, "long", name, true, false, false));
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Metriche di Canopy",
+                    attrs.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
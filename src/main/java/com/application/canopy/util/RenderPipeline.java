@@ -0,0 +1,105 @@
+package com.application.canopy.util;
+
+import javafx.application.ConditionalFeature;
+import javafx.application.Platform;
+
+import java.util.prefs.Preferences;
+
+/**
+ * Scelta della pipeline di rendering di JavaFX (Prism).
+ *
+ * In modalità automatica JavaFX prova prima la pipeline hardware (d3d/es2) e
+ * ripiega da sola sul software se non è disponibile. Se un avvio in hardware
+ * non arriva mai al primo frame (driver che va in crash), il successivo parte
+ * in software e la scelta viene ricordata finché l'utente non riattiva
+ * l'accelerazione dalle impostazioni.
+ *
+ * Va configurata in main, prima di Application.launch.
+ */
+public final class RenderPipeline {
+
+    private static final Preferences PREFS = Preferences.userNodeForPackage(RenderPipeline.class);
+
+    private static final String PREF_HARDWARE = "canopy.render.hardware";
+    private static final String PREF_HW_FAILED = "canopy.render.hardwareFailed";
+    private static final String PREF_PENDING = "canopy.render.pendingLaunch";
+
+    private static boolean hardwareRequested;
+
+    private RenderPipeline() {
+    }
+
+    // Imposta le proprietà di Prism in base alle preferenze salvate
+    public static void configure() {
+        // -Dprism.order=... da riga di comando ha sempre la precedenza
+        if (System.getProperty("prism.order") != null) {
+            System.out.println("[RenderPipeline] prism.order impostato a mano: " + System.getProperty("prism.order"));
+            return;
+        }
+
+        boolean hardware = PREFS.getBoolean(PREF_HARDWARE, true);
+        boolean failed = PREFS.getBoolean(PREF_HW_FAILED, false);
+
+        // l'ultimo avvio in hardware non è arrivato al primo frame
+        if (hardware && !failed && PREFS.getBoolean(PREF_PENDING, false)) {
+            System.err.println("[RenderPipeline] Avvio precedente in hardware non completato, uso il renderer software");
+            failed = true;
+            PREFS.putBoolean(PREF_HW_FAILED, true);
+        }
+
+        hardwareRequested = hardware && !failed;
+        if (hardwareRequested) {
+            // il flag resta acceso finché non si vede il primo frame
+            PREFS.putBoolean(PREF_PENDING, true);
+        } else {
+            System.setProperty("prism.order", "sw"); // forza renderer software
+            System.setProperty("prism.text", "t2k"); // renderer testi alternativo
+        }
+        flush();
+    }
+
+    // Da chiamare al primo frame disegnato: l'avvio in hardware è andato a buon fine
+    public static void markFirstFrame() {
+        if (PREFS.getBoolean(PREF_PENDING, false)) {
+            PREFS.putBoolean(PREF_PENDING, false);
+            flush();
+        }
+        System.out.println("[RenderPipeline] Pipeline attiva: " + describeActive());
+    }
+
+    // Chiusura normale: non è un crash, anche se il primo frame non è arrivato
+    public static void markCleanExit() {
+        markFirstFrame();
+    }
+
+    public static boolean isHardwareActive() {
+        return Platform.isSupported(ConditionalFeature.SCENE3D);
+    }
+
+    public static String describeActive() {
+        if (isHardwareActive())
+            return "hardware";
+        return hardwareRequested ? "software (hardware non disponibile)" : "software";
+    }
+
+    // L'utente vuole l'accelerazione hardware (se non è già fallita)
+    public static boolean isHardwareEnabled() {
+        return PREFS.getBoolean(PREF_HARDWARE, true) && !PREFS.getBoolean(PREF_HW_FAILED, false);
+    }
+
+    // Cambia la preferenza: vale dal prossimo avvio
+    public static void setHardwareEnabled(boolean enabled) {
+        PREFS.putBoolean(PREF_HARDWARE, enabled);
+        // una scelta esplicita azzera il fallback automatico
+        PREFS.putBoolean(PREF_HW_FAILED, false);
+        flush();
+    }
+
+    private static void flush() {
+        try {
+            PREFS.flush();
+        } catch (Exception e) {
+            System.err.println("[RenderPipeline] Impossibile salvare le preferenze: " + e.getMessage());
+        }
+    }
+}
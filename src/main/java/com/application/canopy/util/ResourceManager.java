@@ -1,28 +1,124 @@
 package com.application.canopy.util;
 
+import javafx.geometry.Rectangle2D;
 import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.stage.Screen;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 /**
  * Gestisce il caricamento delle risorse.
+ *
+ * Le immagini stanno in una cache LRU con un budget in byte (pixel decodificati,
+ * 4 byte per pixel): superato il budget vengono scartate le meno usate di recente.
+ * Le immagini delle piante vengono decodificate in background, la ImageView le
+ * mostra appena pronte.
+ *
+ * Le miniature possono essere richieste con una dimensione: vengono decodificate
+ * già scalate (tenendo conto della scala HiDPI dello schermo) e messe in cache
+ * per path + dimensione.
+ *
+ * Per liste e calendario le miniature vengono servite da un atlas generato in
+ * fase di build (src/build, AtlasPacker): una sola immagine, ritagliata con setViewport.
+ * Lo stesso per gli stage di crescita della home, con un atlas per pianta.
  */
 public class ResourceManager {
 
     private static final String IMAGES_ROOT = "/com/application/canopy/view/components/images/";
     private static final String THUMBS_DIR = IMAGES_ROOT + "thumbs/";
+    // atlas generati da AtlasPacker (src/build), con il loro indice (AtlasIndex)
+    private static final String ATLAS_DIR = IMAGES_ROOT + "atlas/";
     // private static final String PLANTS_DIR = IMAGES_ROOT + "plants/";
 
-    private static final Map<String, Image> imageCache = new HashMap<>();
+    // budget della cache in MB, modificabile con -Dcanopy.imageCacheMb=...
+    private static final long CACHE_BUDGET_BYTES = Long.getLong("canopy.imageCacheMb", 128L) * 1024 * 1024;
+
+    // path -> immagine, in ordine di accesso (la prima è la meno usata)
+    private static final Map<String, CacheEntry> imageCache = new LinkedHashMap<>(64, 0.75f, true);
+    private static long cachedBytes;
+
+    // indice degli atlas: "gruppo/file" -> regione (vuoto se gli atlas non sono stati generati)
+    private static Map<String, AtlasRegion> atlasIndex;
+
+    // contatori della cache
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    // tempo di decodifica (dalla richiesta all'immagine pronta) e metriche della cache
+    private static final Metrics.Histogram DECODE_TIME = Metrics.histogram("image.decode");
+    private static final Metrics.Counter DECODE_ERRORS = Metrics.counter("image.decode_errors");
+
+    static {
+        Metrics.gauge("image.cache.hits", ResourceManager::getCacheHits);
+        Metrics.gauge("image.cache.misses", ResourceManager::getCacheMisses);
+        Metrics.gauge("image.cache.evictions", ResourceManager::getCacheEvictions);
+        Metrics.gauge("image.cache.bytes", ResourceManager::getCachedBytes);
+    }
+
+    private record AtlasRegion(String atlasFile, Rectangle2D viewport) {
+    }
+
+    /**
+     * Immagine da mostrare in una ImageView: un'immagine singola (viewport null)
+     * o una regione di un atlas.
+     */
+    public record Frame(Image image, Rectangle2D viewport) {
+        public void applyTo(ImageView view) {
+            view.setImage(image);
+            view.setViewport(viewport);
+        }
+    }
+
+    private static final class CacheEntry {
+        final Image image;
+        final long requestedAt;
+        final FlightRecording.ImageDecode event; // evento JFR, chiuso a immagine pronta
+        long bytes; // 0 finché un'immagine in background non è pronta
+        boolean done; // onImageReady già eseguito (può arrivare sia dal listener che dal controllo)
+
+        CacheEntry(Image image, long requestedAt, FlightRecording.ImageDecode event) {
+            this.image = image;
+            this.requestedAt = requestedAt;
+            this.event = event;
+        }
+    }
 
     public static Image loadImage(String path) {
+        return loadImage(path, false);
+    }
+
+    // background = true: ritorna subito, la decodifica avviene fuori dal thread FX
+    public static Image loadImage(String path, boolean background) {
+        return loadImage(path, 0, 0, background);
+    }
+
+    // Decodifica l'immagine già ridotta per stare in width x height (0 = nessun limite),
+    // mantenendo le proporzioni e con smoothing.
+    // Solo lettura e inserimento in cache sono sotto lock: la decodifica (sincrona se
+    // background == false) avviene fuori, così un'immagine grande non blocca le altre
+    public static Image loadImage(String path, double width, double height, boolean background) {
         if (path == null)
             return null;
-        if (imageCache.containsKey(path)) {
-            return imageCache.get(path);
-        }
+
+        double scale = (width > 0 || height > 0) ? outputScale() : 1.0;
+        double reqW = width > 0 ? Math.ceil(width * scale) : 0;
+        double reqH = height > 0 ? Math.ceil(height * scale) : 0;
+        String key = (reqW > 0 || reqH > 0) ? path + "@" + (int) reqW + "x" + (int) reqH : path;
+
+        Image cached = cachedImage(key);
+        if (cached != null)
+            return cached;
 
         URL url = ResourceManager.class.getResource(path);
         if (url == null) {
@@ -30,20 +126,139 @@ public class ResourceManager {
             return null;
         }
 
-        Image img = new Image(url.toExternalForm(), false);
-        imageCache.put(path, img);
+        // senza background la decodifica avviene già nel costruttore di Image
+        long requestedAt = System.nanoTime();
+        FlightRecording.ImageDecode event = new FlightRecording.ImageDecode();
+        event.begin();
+        Image img = new Image(url.toExternalForm(), reqW, reqH, true, true, background);
+        CacheEntry entry = new CacheEntry(img, requestedAt, event);
+        event.path = path;
+        event.width = (int) reqW;
+        event.height = (int) reqH;
+        event.background = background;
+
+        synchronized (ResourceManager.class) {
+            // un altro thread l'ha decodificata nel frattempo: si usa la sua
+            // (cachedImage l'aveva contata come miss: è un hit)
+            CacheEntry other = imageCache.get(key);
+            if (other != null) {
+                misses--;
+                hits++;
+                img.cancel();
+                return other.image;
+            }
+            imageCache.put(key, entry);
+        }
+
+        // prima il listener, poi il controllo: fuori dal thread FX il caricamento può finire
+        // in mezzo, e senza listener non verrebbe mai registrato (onImageReady lo fa una volta)
+        img.progressProperty().addListener((obs, oldV, newV) -> {
+            if (newV.doubleValue() >= 1.0) {
+                onImageReady(key, entry);
+            }
+        });
+        if (img.getProgress() >= 1.0) {
+            onImageReady(key, entry);
+        }
         return img;
     }
 
+    private static synchronized Image cachedImage(String key) {
+        CacheEntry cached = imageCache.get(key);
+        if (cached == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return cached.image;
+    }
+
+    // Scala dello schermo principale (2.0 su HiDPI), 1.0 se non disponibile
+    private static double outputScale() {
+        try {
+            return Math.max(1.0, Screen.getPrimary().getOutputScaleX());
+        } catch (Exception e) {
+            return 1.0;
+        }
+    }
+
+    // Contabilizza i byte dell'immagine appena decodificata ed eventualmente libera spazio
+    private static synchronized void onImageReady(String path, CacheEntry entry) {
+        if (entry.done)
+            return;
+        entry.done = true;
+
+        if (entry.image.isError()) {
+            DECODE_ERRORS.increment();
+            System.err.println("[ResourceManager] Errore di decodifica: " + path);
+            if (imageCache.get(path) == entry) {
+                imageCache.remove(path);
+                cachedBytes -= entry.bytes;
+            }
+            return;
+        }
+        if (imageCache.get(path) != entry || entry.bytes > 0)
+            return;
+
+        DECODE_TIME.recordSince(entry.requestedAt);
+        entry.event.commit();
+
+        entry.bytes = (long) entry.image.getWidth() * (long) entry.image.getHeight() * 4L;
+        cachedBytes += entry.bytes;
+        trimToBudget(path);
+    }
+
+    // Scarta le immagini meno usate finché si rientra nel budget (tiene sempre l'ultima caricata)
+    private static void trimToBudget(String keep) {
+        Iterator<Map.Entry<String, CacheEntry>> it = imageCache.entrySet().iterator();
+        while (cachedBytes > CACHE_BUDGET_BYTES && it.hasNext()) {
+            Map.Entry<String, CacheEntry> e = it.next();
+            if (e.getKey().equals(keep) || e.getValue().bytes == 0)
+                continue;
+            cachedBytes -= e.getValue().bytes;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    // Statistiche cache
+
+    public static synchronized long getCacheHits() {
+        return hits;
+    }
+
+    public static synchronized long getCacheMisses() {
+        return misses;
+    }
+
+    public static synchronized long getCacheEvictions() {
+        return evictions;
+    }
+
+    public static synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public static synchronized String describeCache() {
+        return String.format("[ResourceManager] cache: %d immagini, %.1f/%d MB, hit %d, miss %d, evict %d",
+                imageCache.size(), cachedBytes / (1024.0 * 1024.0), CACHE_BUDGET_BYTES / (1024 * 1024),
+                hits, misses, evictions);
+    }
+
     /**
      * Tenta di caricare un'immagine da più percorsi possibili.
      * Restituisce la prima trovata.
      */
     public static Image loadFirstExisting(String... paths) {
+        return loadFirstExisting(0, paths);
+    }
+
+    // Come sopra, ma decodifica nel riquadro size x size (0 = dimensione originale)
+    public static Image loadFirstExisting(double size, String... paths) {
         for (String path : paths) {
             URL url = ResourceManager.class.getResource(path);
             if (url != null) {
-                return loadImage(path); // usa la cache
+                return loadImage(path, size, size, true); // usa la cache
             }
         }
         return null;
@@ -57,11 +272,29 @@ public class ResourceManager {
     }
 
     public static Image getPlantThumbnail(String fileName) {
-        return loadImage(THUMBS_DIR + fileName);
+        return loadImage(THUMBS_DIR + fileName, true);
+    }
+
+    // Miniatura decodificata per un riquadro size x size (liste, calendario)
+    public static Image getPlantThumbnail(String fileName, double size) {
+        return loadImage(THUMBS_DIR + fileName, size, size, true);
     }
 
     public static Image getPlantThumbnailByName(String plantName) {
-        if (plantName == null)
+        return getPlantThumbnailByName(plantName, 0);
+    }
+
+    public static Image getPlantThumbnailByName(String plantName, double size) {
+        String fName = thumbFileForName(plantName);
+        if (fName == null)
+            return null;
+
+        return size > 0 ? getPlantThumbnail(fName, size) : getPlantThumbnail(fName);
+    }
+
+    // Nome pianta (come salvato nel calendario) -> file della miniatura
+    public static String thumbFileForName(String plantName) {
+        if (plantName == null || plantName.isBlank())
             return null;
 
         // Mappatura nome -> file
@@ -81,17 +314,97 @@ public class ResourceManager {
         if (fName == null) {
             fName = Character.toUpperCase(key.charAt(0)) + key.substring(1) + ".png";
         }
+        return fName;
+    }
+
+    // Atlas
 
-        return getPlantThumbnail(fName);
+    /**
+     * Mostra la miniatura nella ImageView come regione dell'atlas.
+     * Ritorna false (e azzera il viewport) se la miniatura non è nell'atlas:
+     * in quel caso il chiamante carica l'immagine singola.
+     */
+    public static boolean applyAtlasThumbnail(ImageView view, String fileName) {
+        if (view == null)
+            return false;
+
+        AtlasRegion region = fileName == null ? null : atlasIndex().get(AtlasIndex.key(AtlasIndex.THUMBS, fileName));
+        if (region == null) {
+            view.setViewport(null);
+            return false;
+        }
+        view.setImage(loadImage(ATLAS_DIR + region.atlasFile(), true));
+        view.setViewport(region.viewport());
+        return true;
+    }
+
+    private static synchronized Map<String, AtlasRegion> atlasIndex() {
+        if (atlasIndex != null)
+            return atlasIndex;
+
+        atlasIndex = new HashMap<>();
+        try (InputStream in = ResourceManager.class.getResourceAsStream(ATLAS_DIR + AtlasIndex.FILE)) {
+            if (in == null) {
+                System.err.println("[ResourceManager] Atlas non trovati, uso le immagini singole");
+                return atlasIndex;
+            }
+
+            Properties index = new Properties();
+            index.load(in);
+            for (String name : index.stringPropertyNames()) {
+                String[] p = index.getProperty(name).split(",");
+                atlasIndex.put(name, new AtlasRegion(p[0], new Rectangle2D(
+                        Double.parseDouble(p[1]), Double.parseDouble(p[2]),
+                        Double.parseDouble(p[3]), Double.parseDouble(p[4]))));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[ResourceManager] Indice degli atlas non valido: " + e.getMessage());
+            atlasIndex.clear();
+        }
+        return atlasIndex;
+    }
+
+    // Stage di crescita (3 = pianta finale) dall'atlas della pianta; se manca, l'immagine
+    // singola decodificata all'altezza height. null se non c'è nessuna immagine
+    public static Frame getGrowthFrame(com.application.canopy.model.Plant plant, int stageIndex, double height) {
+        if (plant == null)
+            return null;
+
+        for (String file : stageFiles(plant, stageIndex)) {
+            AtlasRegion region = atlasIndex().get(AtlasIndex.key(AtlasIndex.STAGES, file));
+            if (region != null)
+                return new Frame(loadImage(ATLAS_DIR + region.atlasFile(), true), region.viewport());
+        }
+        Image single = getGrowthImage(plant, stageIndex, height);
+        return single != null ? new Frame(single, null) : null;
     }
 
     public static Image getGrowthImage(com.application.canopy.model.Plant plant, int stageIndex) {
+        return getGrowthImage(plant, stageIndex, 0);
+    }
+
+    // height > 0: decodifica lo stage già all'altezza in cui viene mostrato
+    public static Image getGrowthImage(com.application.canopy.model.Plant plant, int stageIndex, double height) {
         if (plant == null)
             return null;
 
+        for (String file : stageFiles(plant, stageIndex)) {
+            String path = THUMBS_DIR + file;
+            if (ResourceManager.class.getResource(path) != null) {
+                return loadImage(path, 0, height, true);
+            }
+        }
+
+        System.err.println(
+                "[ResourceManager] Immagine stage non trovata: " + plant.getName() + " stage: " + stageIndex);
+        return null;
+    }
+
+    // File candidati per lo stage, nell'ordine in cui cercarli
+    private static List<String> stageFiles(com.application.canopy.model.Plant plant, int stageIndex) {
         // Stage 3 -> Pianta finale (usa la thumb normale)
         if (stageIndex >= 3) {
-            return getPlantThumbnail(plant.getThumbFile());
+            return plant.getThumbFile() != null ? List.of(plant.getThumbFile()) : List.of();
         }
 
         java.util.Set<String> candidates = new java.util.LinkedHashSet<>();
@@ -110,18 +423,12 @@ public class ResourceManager {
 
         String suffix = "-Stage" + stageIndex;
 
+        List<String> files = new ArrayList<>();
         for (String base : candidates) {
-            Image img = loadFirstExisting(
-                    THUMBS_DIR + base + suffix + ".png",
-                    THUMBS_DIR + base + suffix + ".jpg");
-            if (img != null) {
-                return img;
-            }
+            files.add(base + suffix + ".png");
+            files.add(base + suffix + ".jpg");
         }
-
-        System.err.println(
-                "[ResourceManager] Immagine stage non trovata: " + plant.getName() + " stage: " + stageIndex);
-        return null;
+        return files;
     }
 
     public static Image getNavIcon(String name, boolean isWhite) {
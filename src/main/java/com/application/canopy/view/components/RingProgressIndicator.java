@@ -1,70 +1,118 @@
 package com.application.canopy.view.components;
 
+import javafx.animation.AnimationTimer;
+import javafx.beans.InvalidationListener;
 import javafx.geometry.Pos;
+import javafx.scene.Group;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Label;
-import javafx.scene.layout.Pane;
 import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
 import javafx.scene.shape.*;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 //"Oggetto" riutilizzabile per il progresso circolare
+//
+// L'anello viene disegnato su un Canvas (una sola bitmap per anello) invece che con
+// Circle/Arc nel grafo della scena: cambiare il progresso non rifà il layout.
+// I colori arrivano comunque dal CSS (.ring-track, .ring-progress, .ring-inner)
+// tramite forme nascoste che servono solo a leggere lo stile.
+// I cambi di progresso sono animati da un unico AnimationTimer condiviso da tutti
+// gli anelli, che si ferma quando nessun anello si sta muovendo.
 
 public class RingProgressIndicator extends StackPane {
 
-    private final Arc arc;
+    // sotto questa differenza (in gradi) non si ridisegna: a schermo non si vede
+    private static final double MIN_VISIBLE_DEGREES = 0.5;
+    // costante di tempo dell'animazione: in ~3 tau il valore arriva a destinazione
+    private static final double ANIMATION_TAU_SECONDS = 0.12;
+
+    private final Canvas canvas;
     private final Label label;
+    private final double size;
+
+    // forme mai disegnate: portano lo stile CSS dell'anello
+    private final Circle trackStyle = new Circle();
+    private final Circle innerStyle = new Circle();
+    private final Arc progressStyle = new Arc();
+
+    private final double thickness;
+
+    // valore mostrato (animato) e valore da raggiungere
+    private double shown;
+    private double target;
+    // valore dell'ultimo disegno
+    private double drawn = -1;
 
     public RingProgressIndicator(int size, double thickness) { //(dimezione, spessore dell'arco)
+        this.size = size;
+        this.thickness = thickness;
+
         // Blocca dimensioni
         setPrefSize(size, size);
         setMinSize(size, size);
         setMaxSize(size, size);
 
-        double radius = size / 2.0;
         //"foglio" in cui si disegnera
-        Pane draw = new Pane();
-        draw.setPrefSize(size, size);
-        draw.setMinSize(size, size);
-        draw.setMaxSize(size, size);
-
-        // cerchio di fondo, il binario
-        Circle track = new Circle(radius, radius, radius - thickness / 2);
-        track.getStyleClass().add("ring-track");
-
-        // cerchio interno, il buco tipo il buco della ciambella
-        Circle inner = new Circle(radius, radius, radius - thickness - 2);
-        inner.getStyleClass().add("ring-inner");
-
-        // arco di progresso, quello che percorre il binario
-        arc = new Arc(
-                radius,
-                radius,
-                radius - thickness / 2,
-                radius - thickness / 2,
-                90, //90° da dove inizia
-                0);//con quanto inizia per default
-        arc.setType(ArcType.OPEN);
-        arc.setStrokeLineCap(StrokeLineCap.ROUND);
-        arc.getStyleClass().add("ring-progress");
-
-
-        // cerchio di fondo
-        draw.getChildren().addAll(track, inner, arc); //molto importante l'ordine
+        canvas = new Canvas(size, size);
+
+        trackStyle.getStyleClass().add("ring-track");
+        innerStyle.getStyleClass().add("ring-inner");
+        progressStyle.getStyleClass().add("ring-progress");
+        progressStyle.setStrokeWidth(thickness);
+        trackStyle.setStrokeWidth(thickness);
+
+        Group styleHolder = new Group(trackStyle, innerStyle, progressStyle);
+        styleHolder.setVisible(false);
+        styleHolder.setManaged(false);
+
+        // il CSS (tema) cambia i colori -> ridisegna
+        InvalidationListener restyle = obs -> redraw();
+        trackStyle.strokeProperty().addListener(restyle);
+        trackStyle.strokeWidthProperty().addListener(restyle);
+        innerStyle.fillProperty().addListener(restyle);
+        innerStyle.opacityProperty().addListener(restyle);
+        progressStyle.strokeProperty().addListener(restyle);
+        progressStyle.strokeWidthProperty().addListener(restyle);
 
         label = new Label("0%");
         label.setMouseTransparent(true);
 
-        getChildren().addAll(draw, label);
+        getChildren().addAll(styleHolder, canvas, label);
 
         // centra tutto nello StackPane
-        setAlignment(draw, Pos.CENTER);
+        setAlignment(canvas, Pos.CENTER);
         setAlignment(label, Pos.CENTER);
+
+        redraw();
     }
 
-    //Qui si disegna il cercio dipendendo da vaule (il progresso)
+    //Qui si imposta il progresso: l'anello ci arriva con un'animazione
     public void setProgress(double value) { //vaule é un numero che va da 0 a 1 (0.1=10% 0,5=50%...)
         value = Math.max(0, Math.min(1, value));//qui dice che se value <0 allora = 0 e se value >1 allora = 1
-        arc.setLength(-360 * value);//il segno nei gradi ci da la direzione della barra
-        label.setText(Math.round(value * 100) + "%");
+        target = value;
+
+        String text = Math.round(value * 100) + "%";
+        if (!text.equals(label.getText()))
+            label.setText(text);
+
+        // fuori dalla scena non c'è niente da animare: salta direttamente al valore
+        if (getScene() == null) {
+            shown = value;
+            redrawIfVisible();
+            return;
+        }
+        Animator.add(this);
+    }
+
+    public double getProgress() {
+        return target;
     }
 
     //Qui mi ritorna il oggetto label permettendo poi che possa
@@ -72,4 +120,98 @@ public class RingProgressIndicator extends StackPane {
     public Label getLabel() {
         return label;
     }
+
+    // avanza l'animazione di dt secondi, ritorna true se ha raggiunto il valore
+    private boolean step(double dt) {
+        double diff = target - shown;
+        if (Math.abs(diff) < 0.0005) {
+            shown = target;
+        } else {
+            shown += diff * (1 - Math.exp(-dt / ANIMATION_TAU_SECONDS));
+        }
+        redrawIfVisible();
+        return shown == target;
+    }
+
+    private void redrawIfVisible() {
+        if (drawn >= 0 && Math.abs(shown - drawn) * 360 < MIN_VISIBLE_DEGREES && shown != target)
+            return;
+        if (drawn == shown)
+            return;
+        redraw();
+    }
+
+    //Qui si disegna il cerchio dipendendo dal valore mostrato
+    private void redraw() {
+        drawn = shown;
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, size, size);
+
+        double trackWidth = trackStyle.getStrokeWidth();
+        double progressWidth = progressStyle.getStrokeWidth();
+        double stroke = Math.max(trackWidth, progressWidth);
+        double radius = size / 2.0 - thickness / 2;
+        double c = size / 2.0;
+
+        // cerchio di fondo, il binario
+        if (paintVisible(trackStyle.getStroke())) {
+            gc.setStroke(trackStyle.getStroke());
+            gc.setLineWidth(trackWidth);
+            gc.strokeOval(c - radius, c - radius, radius * 2, radius * 2);
+        }
+
+        // cerchio interno, il buco tipo il buco della ciambella
+        if (innerStyle.getOpacity() > 0 && paintVisible(innerStyle.getFill())) {
+            double innerR = size / 2.0 - stroke - 2;
+            gc.setGlobalAlpha(innerStyle.getOpacity());
+            gc.setFill(innerStyle.getFill());
+            gc.fillOval(c - innerR, c - innerR, innerR * 2, innerR * 2);
+            gc.setGlobalAlpha(1);
+        }
+
+        // arco di progresso, quello che percorre il binario (parte da 90°, senso orario)
+        if (shown > 0 && paintVisible(progressStyle.getStroke())) {
+            gc.setStroke(progressStyle.getStroke());
+            gc.setLineWidth(progressWidth);
+            gc.setLineCap(StrokeLineCap.ROUND);
+            gc.strokeArc(c - radius, c - radius, radius * 2, radius * 2, 90, -360 * shown, ArcType.OPEN);
+        }
+    }
+
+    private static boolean paintVisible(Paint p) {
+        return p != null && !Color.TRANSPARENT.equals(p);
+    }
+
+    // Un solo timer per tutti gli anelli in movimento
+    private static final class Animator {
+        private static final Set<RingProgressIndicator> active = new LinkedHashSet<>();
+        private static long lastFrame;
+
+        private static final AnimationTimer TIMER = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                double dt = lastFrame == 0 ? 1.0 / 60 : (now - lastFrame) / 1_000_000_000.0;
+                lastFrame = now;
+
+                List<RingProgressIndicator> done = new ArrayList<>();
+                for (RingProgressIndicator ring : active) {
+                    if (ring.step(dt))
+                        done.add(ring);
+                }
+                done.forEach(active::remove);
+
+                if (active.isEmpty()) {
+                    stop();
+                    lastFrame = 0;
+                }
+            }
+        };
+
+        static void add(RingProgressIndicator ring) {
+            if (active.add(ring) && active.size() == 1) {
+                TIMER.start();
+            }
+        }
+    }
 }
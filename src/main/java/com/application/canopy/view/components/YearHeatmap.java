@@ -0,0 +1,242 @@
+package com.application.canopy.view.components;
+
+import javafx.beans.InvalidationListener;
+import javafx.geometry.VPos;
+import javafx.scene.Group;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+import javafx.util.Duration;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.format.TextStyle;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+// Heatmap di un anno intero: una colonna per settimana, una riga per giorno (lun..dom).
+//
+// Tutto su un solo Canvas: 365 celle come nodi vorrebbero dire 365 nodi da stilare
+// e impaginare a ogni cambio d'anno, qui invece si ridisegna e basta.
+// I colori arrivano dal CSS (.heatmap-empty, .heatmap-full, .heatmap-label) tramite
+// forme nascoste, come in RingProgressIndicator: il tema cambia -> si ridisegna.
+
+public class YearHeatmap extends Region {
+
+    // soglie dei livelli di colore in minuti (un pomodoro, due, quattro, oltre)
+    private static final int[] LEVELS = { 25, 50, 100 };
+    private static final double[] LEVEL_MIX = { 0.3, 0.5, 0.75, 1.0 };
+
+    private static final double GAP = 3;
+    private static final double MAX_CELL = 24;
+    private static final double LABEL_WIDTH = 36;
+    private static final double LABEL_HEIGHT = 20;
+
+    private final Canvas canvas = new Canvas();
+    private final Locale locale = Locale.ITALY;
+
+    // forme mai disegnate: portano lo stile CSS della heatmap
+    private final Rectangle emptyStyle = new Rectangle();
+    private final Rectangle fullStyle = new Rectangle();
+    private final Text labelStyle = new Text();
+
+    private final Tooltip tooltip = new Tooltip();
+    // il tooltip c'è solo sopra una cella (tra le celle e sulle etichette niente fumetto vuoto)
+    private boolean tooltipInstalled;
+
+    private int year = LocalDate.now().getYear();
+    private int[] minutes = new int[0];
+    private Consumer<LocalDate> onDayClicked;
+
+    // geometria dell'ultimo disegno, serve per trovare il giorno sotto il mouse
+    private double cell;
+    private double originX;
+    private double originY;
+
+    public YearHeatmap() {
+        getStyleClass().add("year-heatmap");
+
+        emptyStyle.getStyleClass().add("heatmap-empty");
+        fullStyle.getStyleClass().add("heatmap-full");
+        labelStyle.getStyleClass().add("heatmap-label");
+
+        Group styleHolder = new Group(emptyStyle, fullStyle, labelStyle);
+        styleHolder.setVisible(false);
+        styleHolder.setManaged(false);
+
+        InvalidationListener restyle = obs -> redraw();
+        emptyStyle.fillProperty().addListener(restyle);
+        fullStyle.fillProperty().addListener(restyle);
+        labelStyle.fillProperty().addListener(restyle);
+        labelStyle.fontProperty().addListener(restyle);
+
+        getChildren().addAll(styleHolder, canvas);
+
+        tooltip.setShowDelay(Duration.millis(150));
+        canvas.setOnMouseMoved(this::updateTooltip);
+        canvas.setOnMouseClicked(e -> {
+            LocalDate date = dayAt(e.getX(), e.getY());
+            if (date != null && onDayClicked != null)
+                onDayClicked.accept(date);
+        });
+    }
+
+    // minutesPerDay: indice 0 = 1 gennaio (come PlantActivityRepository.getMinutesPerDay)
+    public void setData(int year, int[] minutesPerDay) {
+        this.year = year;
+        this.minutes = minutesPerDay != null ? minutesPerDay : new int[0];
+        redraw();
+    }
+
+    public void setOnDayClicked(Consumer<LocalDate> handler) {
+        this.onDayClicked = handler;
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double w = snapSizeX(getWidth());
+        double h = snapSizeY(getHeight());
+        if (canvas.getWidth() != w || canvas.getHeight() != h) {
+            canvas.setWidth(w);
+            canvas.setHeight(h);
+            redraw();
+        }
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return LABEL_WIDTH + 53 * (MAX_CELL + GAP) + snappedLeftInset() + snappedRightInset();
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return LABEL_HEIGHT + 7 * (MAX_CELL + GAP) + snappedTopInset() + snappedBottomInset();
+    }
+
+    // colonne della griglia: il 1 gennaio sta nella riga del suo giorno della settimana
+    private int firstRow() {
+        return LocalDate.of(year, 1, 1).getDayOfWeek().getValue() - 1;
+    }
+
+    private int columns() {
+        return (firstRow() + minutes.length + 6) / 7;
+    }
+
+    private void redraw() {
+        double w = canvas.getWidth();
+        double h = canvas.getHeight();
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, w, h);
+        if (w <= 0 || h <= 0 || minutes.length == 0)
+            return;
+
+        int columns = columns();
+        cell = Math.min(MAX_CELL, Math.min(
+                (w - LABEL_WIDTH - snappedLeftInset() - snappedRightInset()) / columns - GAP,
+                (h - LABEL_HEIGHT - snappedTopInset() - snappedBottomInset()) / 7 - GAP));
+        if (cell < 2)
+            return;
+        originX = snappedLeftInset() + LABEL_WIDTH;
+        originY = snappedTopInset() + LABEL_HEIGHT;
+
+        drawLabels(gc);
+
+        Color empty = toColor(emptyStyle.getFill(), Color.gray(0.85));
+        Color full = toColor(fullStyle.getFill(), Color.SEAGREEN);
+        Color[] levels = new Color[LEVEL_MIX.length];
+        for (int i = 0; i < levels.length; i++)
+            levels[i] = empty.interpolate(full, LEVEL_MIX[i]);
+
+        double arc = Math.min(6, cell / 3);
+        int shift = firstRow();
+        for (int day = 0; day < minutes.length; day++) {
+            int index = day + shift;
+            double x = originX + (index / 7) * (cell + GAP);
+            double y = originY + (index % 7) * (cell + GAP);
+            gc.setFill(minutes[day] > 0 ? levels[level(minutes[day])] : empty);
+            gc.fillRoundRect(x, y, cell, cell, arc, arc);
+        }
+    }
+
+    // nomi dei mesi sopra la colonna del loro primo giorno, lun/mer/ven a sinistra
+    private void drawLabels(GraphicsContext gc) {
+        Paint fill = labelStyle.getFill() != null ? labelStyle.getFill() : Color.GRAY;
+        Font font = labelStyle.getFont();
+        gc.setFill(fill);
+        gc.setFont(Font.font(font.getFamily(), Math.min(font.getSize(), 12)));
+
+        gc.setTextBaseline(VPos.BOTTOM);
+        gc.setTextAlign(TextAlignment.LEFT);
+        int shift = firstRow();
+        for (Month m : Month.values()) {
+            int index = LocalDate.of(year, m, 1).getDayOfYear() - 1 + shift;
+            double x = originX + (index / 7) * (cell + GAP);
+            gc.fillText(cap(m.getDisplayName(TextStyle.SHORT, locale)), x, originY - 4);
+        }
+
+        gc.setTextBaseline(VPos.CENTER);
+        gc.setTextAlign(TextAlignment.RIGHT);
+        for (DayOfWeek d : new DayOfWeek[] { DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY, DayOfWeek.FRIDAY }) {
+            double y = originY + (d.getValue() - 1) * (cell + GAP) + cell / 2;
+            gc.fillText(cap(d.getDisplayName(TextStyle.SHORT, locale)), originX - 6, y);
+        }
+    }
+
+    private static int level(int minutes) {
+        int i = 0;
+        while (i < LEVELS.length && minutes > LEVELS[i])
+            i++;
+        return i;
+    }
+
+    private LocalDate dayAt(double x, double y) {
+        if (cell <= 0 || x < originX || y < originY)
+            return null;
+        int col = (int) ((x - originX) / (cell + GAP));
+        int row = (int) ((y - originY) / (cell + GAP));
+        // nello spazio tra due celle non c'è nessun giorno
+        if (row > 6 || x - originX - col * (cell + GAP) > cell || y - originY - row * (cell + GAP) > cell)
+            return null;
+        int day = col * 7 + row - firstRow();
+        if (day < 0 || day >= minutes.length)
+            return null;
+        return LocalDate.ofYearDay(year, day + 1);
+    }
+
+    private void updateTooltip(MouseEvent e) {
+        LocalDate date = dayAt(e.getX(), e.getY());
+        if (date == null) {
+            if (tooltipInstalled) {
+                Tooltip.uninstall(canvas, tooltip);
+                tooltipInstalled = false;
+            }
+            return;
+        }
+        int m = minutes[date.getDayOfYear() - 1];
+        String text = date.getDayOfMonth() + " " + date.getMonth().getDisplayName(TextStyle.SHORT, locale)
+                + ": " + (m > 0 ? m + " min" : "nessuna attività");
+        if (!text.equals(tooltip.getText()))
+            tooltip.setText(text);
+        if (!tooltipInstalled) {
+            Tooltip.install(canvas, tooltip);
+            tooltipInstalled = true;
+        }
+    }
+
+    private static Color toColor(Paint paint, Color fallback) {
+        return paint instanceof Color c ? c : fallback;
+    }
+
+    private String cap(String s) {
+        return s.substring(0, 1).toUpperCase(locale) + s.substring(1);
+    }
+}
@@ -3,6 +3,8 @@ module com.application.canopy {
     requires javafx.fxml;
     requires java.prefs;
     requires java.sql;
+    requires java.management; // esportazione delle metriche via JMX
+    requires jdk.jfr; // eventi e registrazione continua (Flight Recorder)
 
     // consenti a FXMLLoader l’accesso via riflessione ai controller
     opens com.application.canopy.controller to javafx.fxml;
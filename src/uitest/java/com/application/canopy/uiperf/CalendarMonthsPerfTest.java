@@ -0,0 +1,56 @@
+package com.application.canopy.uiperf;
+
+import com.application.canopy.Navigator;
+import javafx.scene.control.Button;
+import javafx.scene.control.ToggleButton;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cambio mese nel calendario: ogni mese legge le attività dal DB generato,
+ * riassegna le celle della griglia e ricalcola la lista delle piante.
+ */
+class CalendarMonthsPerfTest {
+
+    // due anni indietro e di nuovo avanti: i dati generati coprono tutto il periodo
+    private static final int MONTHS = 24;
+
+    @BeforeAll
+    static void openCalendar() throws Exception {
+        UiPerfHarness.start();
+        UiPerfHarness.onFx(() -> {
+            Navigator.show("calendar");
+            return null;
+        });
+        UiPerfHarness.settle();
+    }
+
+    @Test
+    void flipMonths() throws Exception {
+        ToggleButton monthBtn = UiPerfHarness.lookup("#monthBtn", ToggleButton.class);
+        Button prev = UiPerfHarness.lookup("#prevBtn", Button.class);
+        Button next = UiPerfHarness.lookup("#nextBtn", Button.class);
+        UiPerfHarness.onFx(() -> {
+            if (!monthBtn.isSelected())
+                monthBtn.fire();
+            return null;
+        });
+
+        flip(prev, next, null);
+
+        PerfBudget budget = new PerfBudget("calendar.month", 60, 4096);
+        for (int i = 0; i < 2; i++)
+            flip(prev, next, budget);
+        budget.check();
+    }
+
+    private static void flip(Button prev, Button next, PerfBudget budget) throws Exception {
+        for (Button button : new Button[] { prev, next }) {
+            for (int i = 0; i < MONTHS; i++) {
+                UiPerfHarness.Sample sample = UiPerfHarness.measure(button::fire);
+                if (budget != null)
+                    budget.add(sample);
+            }
+        }
+    }
+}
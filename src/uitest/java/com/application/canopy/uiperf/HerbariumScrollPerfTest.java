@@ -0,0 +1,76 @@
+package com.application.canopy.uiperf;
+
+import com.application.canopy.Navigator;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.control.skin.VirtualFlow;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Scroll dell'erbario: la lista delle piante (a pixel, come la rotella del mouse)
+ * e la scheda di dettaglio con le immagini.
+ */
+class HerbariumScrollPerfTest {
+
+    private static final double WHEEL_STEP = 40;
+    private static final int DETAIL_STEPS = 40;
+
+    @BeforeAll
+    static void openHerbarium() throws Exception {
+        UiPerfHarness.start();
+        UiPerfHarness.onFx(() -> {
+            Navigator.show("herbarium");
+            return null;
+        });
+        UiPerfHarness.settle();
+    }
+
+    @Test
+    void scrollPlantList() throws Exception {
+        ListView<?> list = UiPerfHarness.lookup("#plantsList", ListView.class);
+        VirtualFlow<?> flow = UiPerfHarness.onFx(() -> (VirtualFlow<?>) list.lookup(".virtual-flow"));
+
+        // giro di riscaldamento: celle create e immagini in cache
+        scrollToEnd(flow, null);
+
+        PerfBudget budget = new PerfBudget("herbarium.list", 25, 1024);
+        for (int i = 0; i < 3; i++)
+            scrollToEnd(flow, budget);
+        budget.check();
+    }
+
+    @Test
+    void scrollDetailCard() throws Exception {
+        ScrollPane detail = UiPerfHarness.lookup("#detailScroll", ScrollPane.class);
+
+        for (int i = 0; i <= DETAIL_STEPS; i++) {
+            double v = (double) i / DETAIL_STEPS;
+            UiPerfHarness.measure(() -> detail.setVvalue(v));
+        }
+
+        PerfBudget budget = new PerfBudget("herbarium.detail", 25, 1024);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i <= DETAIL_STEPS; i++) {
+                double v = round % 2 == 0 ? 1.0 - (double) i / DETAIL_STEPS : (double) i / DETAIL_STEPS;
+                budget.add(UiPerfHarness.measure(() -> detail.setVvalue(v)));
+            }
+        }
+        budget.check();
+    }
+
+    // giù fino in fondo e di nuovo su, un passo di rotella per volta
+    private static void scrollToEnd(VirtualFlow<?> flow, PerfBudget budget) throws Exception {
+        for (double direction : new double[] { WHEEL_STEP, -WHEEL_STEP }) {
+            while (true) {
+                double before = UiPerfHarness.onFx(() -> flow.getPosition());
+                UiPerfHarness.Sample sample = UiPerfHarness.measure(() -> flow.scrollPixels(direction));
+                if (budget != null)
+                    budget.add(sample);
+                double after = UiPerfHarness.onFx(() -> flow.getPosition());
+                if (after == before)
+                    break;
+            }
+        }
+    }
+}
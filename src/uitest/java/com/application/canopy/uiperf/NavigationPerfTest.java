@@ -0,0 +1,72 @@
+package com.application.canopy.uiperf;
+
+import com.application.canopy.Navigator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Navigazione tra tutte le pagine del Navigator.
+ * Il primo caricamento (FXML + initialize sul thread FX) ha un budget a parte;
+ * poi le pagine sono in cache e cambiare pagina deve stare in pochi frame.
+ */
+class NavigationPerfTest {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+
+    @BeforeAll
+    static void startApp() throws Exception {
+        UiPerfHarness.start();
+    }
+
+    // Ogni pagina tolta dalla cache e riaperta: caricamento FXML + initialize + primo
+    // pulse, tutto sul thread FX (il precaricamento è spento, vedi UiPerfHarness)
+    @Test
+    void firstLoadOfEveryPage() throws Exception {
+        // punto di partenza, non misurato: da ritarare con -Duiperf.pageLoad.maxMs
+        double budget = PerfBudget.budgetMs("pageLoad", 1500);
+        List<String> routes = routes();
+        for (String route : routes) {
+            // la pagina visibile non si può scartare: prima si va su un'altra
+            String other = route.equals(routes.get(0)) ? routes.get(1) : routes.get(0);
+            UiPerfHarness.onFx(() -> {
+                Navigator.show(other);
+                Navigator.evict(route);
+                return null;
+            });
+
+            double ms = UiPerfHarness.measure(() -> Navigator.show(route)).latencyNanos() / 1e6;
+            System.out.printf(Locale.ROOT, "[UiPerf] caricamento %s: %.1f ms (budget %.0f)%n", route, ms, budget);
+            assertTrue(ms <= budget, route + ": caricata in " + ms + " ms, budget " + budget + " ms");
+        }
+    }
+
+    @Test
+    void switchBetweenCachedPages() throws Exception {
+        List<String> routes = routes();
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            for (String route : routes)
+                UiPerfHarness.measure(() -> Navigator.show(route));
+        }
+
+        PerfBudget budget = new PerfBudget("navigation", 100, 8192);
+        for (int i = 0; i < ROUNDS; i++) {
+            for (String route : routes)
+                budget.add(UiPerfHarness.measure(() -> Navigator.show(route)));
+        }
+        budget.check();
+    }
+
+    // ordine fisso: Map.of non garantisce l'ordine delle chiavi
+    private static List<String> routes() {
+        List<String> routes = new ArrayList<>(Navigator.getRoutes());
+        routes.sort(null);
+        return routes;
+    }
+}
@@ -0,0 +1,110 @@
+package com.application.canopy.uiperf;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Campioni di uno scenario e relativo budget.
+ *
+ * Il budget è sul p95 della latenza (un frame lento ogni tanto è tollerato, uno su
+ * venti no) e sulle allocazioni medie per azione. Valori di default nel test, da riga
+ * di comando con -Duiperf.<scenario>.p95Ms=N e -Duiperf.<scenario>.allocKb=N, tutti
+ * moltiplicati per -Duiperf.budgetScale. Il riepilogo finisce su console e nel file
+ * indicato da -Duiperf.report.
+ */
+final class PerfBudget {
+
+    private static final double SCALE = Double.parseDouble(System.getProperty("uiperf.budgetScale", "1"));
+    private static final String REPORT = System.getProperty("uiperf.report");
+
+    // un report per esecuzione
+    static {
+        if (REPORT != null) {
+            try {
+                Files.deleteIfExists(Paths.get(REPORT));
+            } catch (IOException e) {
+                System.err.println("[UiPerf] Impossibile azzerare il report: " + e.getMessage());
+            }
+        }
+    }
+
+    private final String scenario;
+    private final double p95BudgetMs;
+    private final long allocBudgetKb;
+    private final List<UiPerfHarness.Sample> samples = new ArrayList<>();
+
+    PerfBudget(String scenario, double p95Ms, long allocKb) {
+        this.scenario = scenario;
+        this.p95BudgetMs = Double.parseDouble(System.getProperty("uiperf." + scenario + ".p95Ms",
+                String.valueOf(p95Ms))) * SCALE;
+        this.allocBudgetKb = (long) (Long.getLong("uiperf." + scenario + ".allocKb", allocKb) * SCALE);
+    }
+
+    // Budget singolo in ms (es. caricamento di una pagina), con la stessa scala degli scenari
+    static double budgetMs(String name, double defaultMs) {
+        return Double.parseDouble(System.getProperty("uiperf." + name + ".maxMs", String.valueOf(defaultMs))) * SCALE;
+    }
+
+    void add(UiPerfHarness.Sample sample) {
+        samples.add(sample);
+    }
+
+    // Scrive il riepilogo e fallisce se il budget è superato
+    void check() {
+        assertTrue(!samples.isEmpty(), scenario + ": nessun campione");
+
+        long[] latencies = samples.stream().mapToLong(UiPerfHarness.Sample::latencyNanos).sorted().toArray();
+        long[] pulses = samples.stream().mapToLong(UiPerfHarness.Sample::pulseNanos).sorted().toArray();
+        double p50 = ms(percentile(latencies, 0.50));
+        double p95 = ms(percentile(latencies, 0.95));
+        double max = ms(latencies[latencies.length - 1]);
+        double pulseP95 = ms(percentile(pulses, 0.95));
+        long allocKb = samples.stream().mapToLong(UiPerfHarness.Sample::allocatedBytes).sum() / samples.size() / 1024;
+
+        String line = String.format(Locale.ROOT,
+                "%-22s n=%-4d p50 %7.2f ms  p95 %7.2f ms (budget %6.1f)  max %7.2f ms  pulse p95 %6.2f ms  alloc %6d KB (budget %d)",
+                scenario, samples.size(), p50, p95, p95BudgetMs, max, pulseP95, allocKb, allocBudgetKb);
+        report(line);
+
+        assertTrue(p95 <= p95BudgetMs, scenario + ": p95 " + fmt(p95) + " ms oltre il budget di "
+                + fmt(p95BudgetMs) + " ms");
+        assertTrue(allocKb <= allocBudgetKb, scenario + ": " + allocKb + " KB allocati per azione, budget "
+                + allocBudgetKb + " KB");
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static void report(String line) {
+        System.out.println("[UiPerf] " + line);
+        if (REPORT == null)
+            return;
+        try {
+            Path path = Paths.get(REPORT);
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            Files.writeString(path, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("[UiPerf] Impossibile scrivere il report: " + e.getMessage());
+        }
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static String fmt(double ms) {
+        return String.format(Locale.ROOT, "%.2f", ms);
+    }
+}
@@ -0,0 +1,63 @@
+package com.application.canopy.uiperf;
+
+import com.application.canopy.db.DatabaseManager;
+import com.application.canopy.model.Plant;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * DB generato per i test di performance: mai data/canopy.db, ma un DB nuovo in una
+ * cartella temporanea con qualche anno di attività (seed fisso, dati riproducibili).
+ * I dati arrivano fino a oggi, così il calendario all'apertura mostra mesi pieni.
+ */
+final class UiPerfData {
+
+    static final int ACTIVITIES = Integer.getInteger("uiperf.activities", 60_000);
+    static final int DAYS = Integer.getInteger("uiperf.days", 3 * 365);
+
+    private static final long SEED = 42;
+
+    private UiPerfData() {
+    }
+
+    // Va chiamato prima di caricare qualsiasi pagina: GameState e i controller leggono il DB all'avvio
+    static void createDatabase() throws IOException, SQLException {
+        Path dir = Files.createTempDirectory("canopy-uiperf");
+        dir.toFile().deleteOnExit();
+
+        DatabaseManager.close();
+        DatabaseManager.init(dir.resolve("canopy.db"));
+        insertActivities(DatabaseManager.getConnection());
+    }
+
+    // Inserimento in un'unica transazione (altrimenti SQLite fa un fsync per riga)
+    private static void insertActivities(Connection conn) throws SQLException {
+        List<Plant> plants = Plant.samplePlants();
+        Random random = new Random(SEED);
+        LocalDate today = LocalDate.now();
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO plant_activity (date, plant_name, minutes) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < ACTIVITIES; i++) {
+                ps.setString(1, today.minusDays(random.nextInt(DAYS)).toString());
+                ps.setString(2, plants.get(random.nextInt(plants.size())).getName());
+                ps.setInt(3, 5 + random.nextInt(56));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.application.canopy.uiperf;
+
+import com.application.canopy.model.FontManager;
+import com.application.canopy.model.ThemeManager;
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * L'app vera (app.fxml, nav, Navigator, temi) in uno Stage headless di Monocle.
+ *
+ * Avviata una volta sola per tutta la JVM dei test; ogni azione misurata gira sul thread FX
+ * e si considera finita alla fine del pulse successivo (CSS + layout). Il disegno vero e
+ * proprio avviene dopo, sul thread di render, e non è compreso.
+ *
+ * Il precaricamento delle pagine è spento (-Dcanopy.preload=false, vedi pom): un thread in
+ * background falserebbe i tempi e il primo caricamento di una pagina va misurato sul thread FX.
+ *
+ * Per ogni azione si misurano:
+ * - latenza: dall'inizio dell'azione alla fine del pulse
+ * - pulse: solo CSS + layout del pulse che segue l'azione
+ * - allocazioni del thread FX nello stesso intervallo
+ */
+final class UiPerfHarness {
+
+    // stessi fogli di stile di Main
+    private static final String[] STYLES = {
+            "/css/base.css",
+            "/css/achievements.css",
+            "/css/calendar.css",
+            "/css/herbarium.css"
+    };
+
+    private static final long TIMEOUT_SEC = 30;
+
+    private static Scene scene;
+
+    // stato del pulse, toccato solo dal thread FX
+    private static long pulseStart;
+    private static Runnable afterPulse;
+
+    private UiPerfHarness() {
+    }
+
+    // Una misura: tempi in nanosecondi, allocazioni in byte
+    record Sample(long latencyNanos, long pulseNanos, long allocatedBytes) {
+    }
+
+    static synchronized void start() throws Exception {
+        if (scene != null)
+            return;
+
+        UiPerfData.createDatabase();
+
+        CompletableFuture<Void> started = new CompletableFuture<>();
+        Platform.startup(() -> started.complete(null));
+        started.get(TIMEOUT_SEC, TimeUnit.SECONDS);
+        Platform.setImplicitExit(false);
+
+        FontManager.initFonts();
+
+        onFx(() -> {
+            Parent root = new FXMLLoader(UiPerfHarness.class.getResource("/com/application/canopy/view/app.fxml"))
+                    .load();
+            ThemeManager.applyTheme(root);
+
+            Scene s = new Scene(root, 1280, 720);
+            for (String style : STYLES) {
+                URL url = UiPerfHarness.class.getResource(style);
+                if (url == null)
+                    throw new IllegalStateException("File CSS non trovato: " + style);
+                s.getStylesheets().add(url.toExternalForm());
+            }
+            FontManager.applyCurrentFont(s);
+
+            s.addPreLayoutPulseListener(() -> pulseStart = System.nanoTime());
+            s.addPostLayoutPulseListener(() -> {
+                Runnable r = afterPulse;
+                afterPulse = null;
+                if (r != null)
+                    r.run();
+            });
+
+            Stage stage = new Stage();
+            stage.setScene(s);
+            stage.show();
+            scene = s;
+            return null;
+        });
+    }
+
+    // Nodo della pagina corrente cercato per selettore CSS (es. "#nextBtn")
+    static <T extends Node> T lookup(String selector, Class<T> type) throws Exception {
+        return onFx(() -> {
+            Node node = scene.getRoot().lookup(selector);
+            if (node == null)
+                throw new IllegalStateException("Nodo non trovato: " + selector);
+            return type.cast(node);
+        });
+    }
+
+    static <T> T onFx(Callable<T> task) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result.get(TIMEOUT_SEC, TimeUnit.SECONDS);
+    }
+
+    // Esegue l'azione sul thread FX e aspetta la fine del pulse che la rende visibile
+    static Sample measure(Runnable action) throws Exception {
+        CompletableFuture<Sample> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                long allocStart = allocatedBytes();
+                long start = System.nanoTime();
+                action.run();
+
+                afterPulse = () -> {
+                    long end = System.nanoTime();
+                    result.complete(new Sample(end - start, end - pulseStart, allocatedBytes() - allocStart));
+                };
+                // se l'azione non ha sporcato la scena il pulse arriva comunque
+                Platform.requestNextPulse();
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result.get(TIMEOUT_SEC, TimeUnit.SECONDS);
+    }
+
+    // Aspetta che la scena sia stabile (animazioni di ingresso, immagini in arrivo...)
+    static void settle() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            measure(() -> {
+            });
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+}